@@ -0,0 +1,146 @@
+package com.bulish.controller;
+
+import com.bulish.dto.UserDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.AnnotationLinkRelationProvider;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.hateoas.server.core.DelegatingLinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * CPU and allocation cost of turning users into HAL responses: link building in
+ * {@link UserController#toModel(UserDto, UserLinkFactory)} and Jackson serialization of the resulting models.
+ * Link building reads the current request, so the state is per thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+
+    @Param({"1", "1000"})
+    private int users;
+
+    private UserController userController;
+    private ObjectMapper halObjectMapper;
+    private List<UserDto> userDtos;
+    private EntityModel<UserDto> userModel;
+    private CollectionModel<EntityModel<UserDto>> usersModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        userController = new UserController(null, null);
+        halObjectMapper = halObjectMapper();
+        userDtos = LongStream.rangeClosed(1, users)
+                .mapToObj(UserControllerBenchmark::userDto)
+                .toList();
+        userModel = userController.toModel(userDtos.get(0), UserLinkFactory.forCurrentRequest());
+        usersModel = toCollectionModel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<UserDto>> toModel() {
+        return toCollectionModel();
+    }
+
+    /**
+     * Baseline: links built per user through {@code methodOn} proxies, as before {@link UserLinkFactory}.
+     */
+    @Benchmark
+    public CollectionModel<EntityModel<UserDto>> toModelPerUserProxies() {
+        List<EntityModel<UserDto>> models = userDtos.stream()
+                .map(user -> EntityModel.of(user, List.of(
+                        linkTo(methodOn(UserController.class).findUserById(user.getId(), null)).withSelfRel(),
+                        linkTo(UserController.class).withRel("users"),
+                        Link.of(linkTo(UserController.class).slash(user.getId()).toString(), "update"),
+                        Link.of(linkTo(UserController.class).slash(user.getId()).toString(), "delete"))))
+                .toList();
+        return CollectionModel.of(models, linkTo(UserController.class).withSelfRel());
+    }
+
+    @Benchmark
+    public String serializeEntityModel() throws JsonProcessingException {
+        return halObjectMapper.writeValueAsString(userModel);
+    }
+
+    @Benchmark
+    public String serializeCollectionModel() throws JsonProcessingException {
+        return halObjectMapper.writeValueAsString(usersModel);
+    }
+
+    @Benchmark
+    public String toModelAndSerialize() throws JsonProcessingException {
+        return halObjectMapper.writeValueAsString(toCollectionModel());
+    }
+
+    private CollectionModel<EntityModel<UserDto>> toCollectionModel() {
+        UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+        List<EntityModel<UserDto>> models = userDtos.stream()
+                .map(user -> userController.toModel(user, links))
+                .toList();
+        return CollectionModel.of(models, links.users().withSelfRel());
+    }
+
+    private static UserDto userDto(long id) {
+        return UserDto.builder()
+                .id(id)
+                .name("name" + id)
+                .email("user" + id + "@mail.com")
+                .age(30)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 30, 15))
+                .build();
+    }
+
+    private static ObjectMapper halObjectMapper() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DelegatingLinkRelationProvider(new AnnotationLinkRelationProvider(),
+                        new DefaultLinkRelationProvider()),
+                CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return objectMapper;
+    }
+}
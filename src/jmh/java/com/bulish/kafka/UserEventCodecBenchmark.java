@@ -0,0 +1,74 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserOperationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event payload encoding as done by {@link KafkaUserEventProducer#sendEvent}, per codec, against the former
+ * JSON string that {@code StringSerializer} re-encoded to UTF-8.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventCodecBenchmark {
+
+    @Param({JsonUserEventCodec.NAME, BinaryUserEventCodec.NAME})
+    private String codecName;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final UserOperationEvent event = UserOperationEvent.builder()
+            .userOperation(UserOperation.CREATE)
+            .email("benchmark@mail.com")
+            .build();
+
+    private UserEventCodec codec;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = switch (codecName) {
+            case BinaryUserEventCodec.NAME -> new BinaryUserEventCodec(
+                    new UserEventSchemaRegistry(new ClassPathResource("kafka/user-event-schemas.properties")));
+            default -> new JsonUserEventCodec(objectMapper);
+        };
+        payload = codec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] jsonString() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(event);
+    }
+
+    @Benchmark
+    public UserOperationEvent decode() {
+        return codec.decode(payload);
+    }
+}
@@ -0,0 +1,47 @@
+package com.bulish.mapper;
+
+import com.bulish.dto.UserDto;
+import com.bulish.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private final UserMapper userMapper = new UserMapper();
+
+    private final User user = User.builder()
+            .id(42L)
+            .name("Benchmark")
+            .email("benchmark@mail.com")
+            .age(30)
+            .createdAt(LocalDateTime.of(2024, 1, 1, 12, 30, 15))
+            .build();
+
+    private final UserDto userDto = userMapper.toDto(user);
+
+    @Benchmark
+    public UserDto toDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return userMapper.toEntity(userDto);
+    }
+}
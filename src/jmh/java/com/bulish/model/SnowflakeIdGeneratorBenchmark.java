@@ -0,0 +1,49 @@
+package com.bulish.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SnowflakeIdGenerator#nextId} on one shared generator, as {@link UserIdGenerator} uses it,
+ * from one thread, four threads and one thread per core. The sequence ids are 4096 per millisecond, past that
+ * the generator's time runs ahead of the clock; once it is {@link SnowflakeIdGenerator#MAX_DRIFT_MILLIS} ahead
+ * it waits for the clock, so a long run measures at most 4096 ids per millisecond.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnowflakeIdGeneratorBenchmark {
+
+    private final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+
+    @Benchmark
+    @Threads(1)
+    public long oneThread() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long fourThreads() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long threadPerCore() {
+        return generator.nextId();
+    }
+}
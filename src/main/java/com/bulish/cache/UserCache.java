@@ -0,0 +1,146 @@
+package com.bulish.cache;
+
+import com.bulish.dto.UserDto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Size-bounded W-TinyLFU cache of users by id. Missing users are cached as {@link Optional#empty()} with a
+ * shorter TTL, so scans over unknown ids do not reach the database on every request.
+ * <p>
+ * Loads run on the calling thread outside of any cache lock: the map only stores an in-flight future, and
+ * concurrent readers of the same id wait on it. This keeps virtual threads from pinning their carrier while
+ * the load waits on JDBC. Readers that waited for a load started by another request are counted by
+ * {@code cache.coalesced}, next to the {@code cache.gets} metrics of Caffeine.
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private final AsyncCache<Long, Optional<UserDto>> cache;
+    private final Counter coalesced;
+
+    public UserCache(@Value("${user.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${user.cache.ttl:10m}") Duration ttl,
+                     @Value("${user.cache.negative-ttl:5s}") Duration negativeTtl,
+                     MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UserExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+        this.coalesced = Counter.builder("cache.coalesced")
+                .tag("cache", "users")
+                .description("Gets that waited for a load of the same id already in flight")
+                .register(meterRegistry);
+    }
+
+    public Optional<UserDto> get(Long id, Function<Long, Optional<UserDto>> loader) {
+        CompletableFuture<Optional<UserDto>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<UserDto>> user = cache.get(id, (key, executor) -> loading);
+        if (user == loading) {
+            try {
+                loading.complete(loader.apply(id));
+            } catch (RuntimeException exception) {
+                loading.completeExceptionally(exception);
+                throw exception;
+            }
+        } else if (!user.isDone()) {
+            coalesced.increment();
+        }
+
+        return join(user);
+    }
+
+    /**
+     * Returns cached users and loads all missing ids with one call of {@code loader}, which must return an entry
+     * for every id it is given. Like {@link #get}, the load runs on the calling thread.
+     */
+    public Map<Long, Optional<UserDto>> getAll(Collection<Long> ids,
+                                               Function<Set<Long>, Map<Long, Optional<UserDto>>> loader) {
+        CompletableFuture<Map<Long, Optional<UserDto>>> loading = new CompletableFuture<>();
+        AtomicReference<Set<Long>> missing = new AtomicReference<>();
+        CompletableFuture<Map<Long, Optional<UserDto>>> users = cache.getAll(ids, (keys, executor) -> {
+            missing.set(Set.copyOf(keys));
+            return loading;
+        });
+        if (missing.get() != null) {
+            try {
+                loading.complete(loader.apply(missing.get()));
+            } catch (RuntimeException exception) {
+                loading.completeExceptionally(exception);
+                throw exception;
+            }
+        }
+
+        return join(users);
+    }
+
+    public void invalidateAfterCommit(Long id) {
+        invalidateAfterCommit(List.of(id));
+    }
+
+    public void invalidateAfterCommit(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.synchronous().invalidateAll(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                log.debug("invalidate cached users {}", ids);
+                cache.synchronous().invalidateAll(ids);
+            }
+        });
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    private record UserExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Long, Optional<UserDto>> {
+
+        @Override
+        public long expireAfterCreate(Long id, Optional<UserDto> user, long currentTime) {
+            return user.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, Optional<UserDto> user, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, Optional<UserDto> user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
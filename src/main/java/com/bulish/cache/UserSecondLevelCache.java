@@ -0,0 +1,50 @@
+package com.bulish.cache;
+
+import com.bulish.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts from Hibernate's second-level cache the users that native {@code UPDATE/DELETE ... RETURNING}
+ * statements change. Hibernate runs them as queries and does not invalidate anything for them, unlike
+ * entity writes and bulk JPQL updates, which drop every cached user.
+ * <p>
+ * Evicts once right away and once after the transaction completed, so an entry loaded from the old row by a
+ * concurrent reader while the transaction was open does not outlive it.
+ */
+@Slf4j
+@Component
+public class UserSecondLevelCache {
+
+    private final Cache cache;
+
+    public UserSecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * For a deleted or patched user.
+     */
+    public void evictAfterCommit(Long id) {
+        runNowAndAfterCompletion(() -> cache.evictEntityData(User.class, id));
+    }
+
+    private static void runNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                log.debug("evict second-level cache after transaction completion");
+                eviction.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.bulish.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit driven by the latency gradient, after Netflix's Gradient2: every completed request compares
+ * its latency with a long-term average. While latency stays within {@code tolerance} of the average the limit
+ * grows by about {@code sqrt(limit)}, when it rises the limit shrinks proportionally, down to half per sample.
+ * The limit only grows while at least half of it is in use, so an idle service does not drift to the maximum.
+ * <p>
+ * The state is three atomics updated with CAS loops, no locks and no allocation per request.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double LONG_RTT_SMOOTHING = 2.0 / (600 + 1);
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    // doubles stored as raw long bits
+    private final AtomicLong limit;
+    private final AtomicLong longRttNanos = new AtomicLong(Double.doubleToRawLongBits(0));
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("expected 1 <= min <= initial <= max limit, got min " + minLimit
+                    + ", initial " + initialLimit + ", max " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+    }
+
+    /**
+     * Takes a slot, or returns {@code false} without waiting when the limit is reached.
+     * Every successful call must be followed by one of the {@code release} methods.
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Frees the slot and adjusts the limit to the latency of the request.
+     */
+    public void release(long rttNanos) {
+        int inflightBefore = inflight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, inflightBefore);
+        }
+    }
+
+    /**
+     * Frees the slot without a latency sample, for requests whose latency says nothing about load.
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void update(double rtt, int inflightBefore) {
+        double longRtt = updateLongRtt(rtt);
+
+        long bits;
+        long next;
+        do {
+            bits = limit.get();
+            double estimated = Double.longBitsToDouble(bits);
+            if (inflightBefore < estimated / 2) {
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / rtt));
+            double target = estimated * gradient + Math.sqrt(estimated);
+            double smoothed = estimated * (1 - smoothing) + target * smoothing;
+            next = Double.doubleToRawLongBits(Math.max(minLimit, Math.min(maxLimit, smoothed)));
+        } while (!limit.compareAndSet(bits, next));
+    }
+
+    private double updateLongRtt(double rtt) {
+        long bits;
+        double next;
+        do {
+            bits = longRttNanos.get();
+            double current = Double.longBitsToDouble(bits);
+            if (current == 0) {
+                next = rtt;
+            } else if (current > rtt * 2) {
+                // latency is back to normal after an overload, catch up faster than the average would
+                next = current * 0.95;
+            } else {
+                next = current + (rtt - current) * LONG_RTT_SMOOTHING;
+            }
+        } while (!longRttNanos.compareAndSet(bits, Double.doubleToRawLongBits(next)));
+        return next;
+    }
+}
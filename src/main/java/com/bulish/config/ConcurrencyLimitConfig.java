@@ -0,0 +1,60 @@
+package com.bulish.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits on the {@code /users} endpoints, on unless {@code concurrency.limit.enabled=false}.
+ * Reads and writes have separate limits with the same settings, so slow writes do not starve reads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "concurrency.limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(
+            @Value("${concurrency.limit.initial-limit:20}") int initialLimit,
+            @Value("${concurrency.limit.min-limit:4}") int minLimit,
+            @Value("${concurrency.limit.max-limit:200}") int maxLimit,
+            @Value("${concurrency.limit.tolerance:1.5}") double tolerance,
+            @Value("${concurrency.limit.smoothing:0.2}") double smoothing,
+            @Value("${concurrency.limit.retry-after:1s}") Duration retryAfter,
+            ObjectMapper objectMapper) {
+        return new ConcurrencyLimitFilter(
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, smoothing),
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, smoothing),
+                retryAfter, objectMapper);
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(ConcurrencyLimitFilter filter) {
+        return registry -> {
+            bind(registry, "read", filter.readLimit());
+            bind(registry, "write", filter.writeLimit());
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String group, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("http.server.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("group", group)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("http.server.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInflight)
+                .tag("group", group)
+                .description("Requests holding a concurrency slot")
+                .register(registry);
+        FunctionCounter.builder("http.server.concurrency.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                .tag("group", group)
+                .description("Requests rejected with 503 past the concurrency limit")
+                .register(registry);
+    }
+}
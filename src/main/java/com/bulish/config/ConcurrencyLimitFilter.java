@@ -0,0 +1,114 @@
+package com.bulish.config;
+
+import com.bulish.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Sheds load on the {@code /users} endpoints before it queues on Tomcat and Hikari: reads and writes each get an
+ * {@link AdaptiveConcurrencyLimit}, and a request past its limit is answered at once with 503 and
+ * {@code Retry-After}. Async requests such as the export hold their slot until they complete, but their
+ * duration is not used as a latency sample.
+ */
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimit readLimit;
+    private final AdaptiveConcurrencyLimit writeLimit;
+    private final Duration retryAfter;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit readLimit, AdaptiveConcurrencyLimit writeLimit,
+                                  Duration retryAfter, ObjectMapper objectMapper) {
+        this.readLimit = readLimit;
+        this.writeLimit = writeLimit;
+        this.retryAfter = retryAfter;
+        this.objectMapper = objectMapper;
+    }
+
+    AdaptiveConcurrencyLimit readLimit() {
+        return readLimit;
+    }
+
+    AdaptiveConcurrencyLimit writeLimit() {
+        return writeLimit;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = UserRequests.isRead(request);
+        AdaptiveConcurrencyLimit limit = read ? readLimit : writeLimit;
+        if (!limit.tryAcquire()) {
+            reject(response, read, limit);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit));
+            } else if (completed) {
+                limit.release(System.nanoTime() - start);
+            } else {
+                limit.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, boolean read, AdaptiveConcurrencyLimit limit) throws IOException {
+        log.debug("{} concurrency limit {} reached, rejecting request", read ? "read" : "write", limit.getLimit());
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponse.builder()
+                .title("Service overloaded")
+                .message("Too many concurrent " + (read ? "read" : "write") + " requests, retry later")
+                .timestamp(Instant.now())
+                .build());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !UserRequests.isUsers(request);
+    }
+
+    private record ReleaseOnComplete(AdaptiveConcurrencyLimit limit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bulish.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins the current thread to the primary database. Read-only transactions started inside
+ * {@link #onPrimary(Supplier)} read the primary instead of a replica, for reads that must see the latest commit.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = requirePrimary();
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static Boolean requirePrimary() {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restore(Boolean previous) {
+        if (previous == null) {
+            PRIMARY.remove();
+        } else {
+            PRIMARY.set(previous);
+        }
+    }
+}
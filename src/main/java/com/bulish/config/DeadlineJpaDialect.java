@@ -0,0 +1,39 @@
+package com.bulish.config;
+
+import com.bulish.exceptions.DeadlineExceededException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps every statement of a transaction started under a {@link RequestDeadline} to the time the request has
+ * left, with {@code SET LOCAL statement_timeout}. Postgres cancels the statement itself when the client has
+ * given up, and the setting ends with the transaction, so pooled connections keep the server default.
+ * JDBC query timeouts are not used: they have a resolution of seconds and cancel through a second connection.
+ */
+class DeadlineJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        if (!RequestDeadline.isSet()) {
+            return super.beginTransaction(entityManager, definition);
+        }
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(RequestDeadline.remainingNanos());
+        if (remainingMillis <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded before the transaction started");
+        }
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL statement_timeout = " + remainingMillis);
+            }
+        });
+        return transactionData;
+    }
+}
@@ -3,6 +3,7 @@ package com.bulish.config;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -22,17 +23,30 @@ public class KafkaProducerConfig {
     @Value("${kafka.producer.linger-ms:5}")
     private int lingerMs;
 
+    @Value("${kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${kafka.producer.max-block-ms:5000}")
+    private long maxBlockMs;
+
     @Bean
-    public Producer<String, String> kafkaProducer() {
+    public Producer<String, byte[]> kafkaProducer() {
         Properties properties = new Properties();
         properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, serverAddress);
         properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
         properties.put(ProducerConfig.ACKS_CONFIG, "all");
         properties.put(ProducerConfig.RETRIES_CONFIG, retries);
         properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
         properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // bounds how long send() waits for metadata while the broker is down
+        properties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
 
         return new KafkaProducer<>(properties);
     }
@@ -0,0 +1,93 @@
+package com.bulish.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Active when {@code datasource.replicas.urls} lists at least one replica. The primary pool stays the one
+ * configured by {@code spring.datasource.*}; every replica gets a pool with the same settings and credentials
+ * and is reached through {@link ReadReplicaRoutingDataSource} by read-only transactions, which do not populate the
+ * second-level cache ({@link ReplicaReadJpaDialect}).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReadReplicaConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor readReplicaPostProcessor(
+            @Value("${datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${datasource.replicas.selection:ROUND_ROBIN}") ReadReplicaRoutingDataSource.Selection selection) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager transactionManager) {
+                    // after afterPropertiesSet, which takes the dialect from the entity manager factory
+                    transactionManager.setJpaDialect(new ReplicaReadJpaDialect());
+                    return bean;
+                }
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource primary)) {
+                    return bean;
+                }
+                HikariDataSource primaryPool = unwrap(primary);
+                List<HikariDataSource> replicaPools = new ArrayList<>();
+                List<DataSource> replicas = new ArrayList<>();
+                for (int i = 0; i < replicaUrls.size(); i++) {
+                    // not started until the first read-only transaction, an unreachable replica does not block startup
+                    HikariDataSource replicaPool = new HikariDataSource();
+                    primaryPool.copyStateTo(replicaPool);
+                    replicaPool.setJdbcUrl(replicaUrls.get(i).trim());
+                    replicaPool.setPoolName("replica-" + i);
+                    replicaPools.add(replicaPool);
+                    // with virtual threads the primary is behind a bulkhead, the replicas get their own
+                    replicas.add(primary instanceof ConnectionBulkheadDataSource
+                            ? new ConnectionBulkheadDataSource(replicaPool, replicaPool.getMaximumPoolSize(),
+                            replicaPool.getConnectionTimeout())
+                            : replicaPool);
+                }
+                log.info("read-only transactions are routed to {} replicas, selection {}", replicaPools.size(), selection);
+                return new ReadReplicaRoutingDataSource(primary, replicas, replicaPools, selection);
+            }
+        };
+    }
+
+    private static HikariDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Read replicas need a Hikari primary pool", exception);
+        }
+    }
+
+    @Bean
+    public MeterBinder readReplicaPoolMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ReadReplicaRoutingDataSource routing) {
+                routing.getReplicaPools().forEach(pool ->
+                        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            }
+        };
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${datasource.replicas.read-your-writes-window:2s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
@@ -0,0 +1,111 @@
+package com.bulish.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary. The physical connection is
+ * taken lazily on the first statement, when the transaction manager has already marked the connection
+ * read-only, so {@code @Transactional(readOnly = true)} alone decides the target.
+ * <p>
+ * Replicas are picked round-robin or by the fewest active and waiting connections. While
+ * {@link DataSourceRouting#isPrimaryRequired()} is set, read-only transactions use the primary as well.
+ */
+public class ReadReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LOADED
+    }
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final List<HikariDataSource> replicaPools;
+    private final Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param replicas     connection sources of the replicas, in the same order as {@code replicaPools}
+     * @param replicaPools the pools behind {@code replicas}, used for load and lifecycle
+     */
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                        List<HikariDataSource> replicaPools, Selection selection) {
+        super(primary);
+        if (replicas.isEmpty() || replicas.size() != replicaPools.size()) {
+            throw new IllegalArgumentException("every replica needs its pool");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.replicaPools = List.copyOf(replicaPools);
+        this.selection = selection;
+        setReadOnlyDataSource(new ReplicaDataSource());
+    }
+
+    public List<HikariDataSource> getReplicaPools() {
+        return replicaPools;
+    }
+
+    DataSource selectReplica() {
+        if (DataSourceRouting.isPrimaryRequired()) {
+            return primary;
+        }
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == Selection.ROUND_ROBIN) {
+            return replicas.get(first);
+        }
+        // starts at the round-robin position, so equally loaded replicas still take turns
+        int selected = first;
+        int minLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (first + i) % replicas.size();
+            int load = load(replicaPools.get(index));
+            if (load < minLoad) {
+                minLoad = load;
+                selected = index;
+            }
+        }
+        return replicas.get(selected);
+    }
+
+    private static int load(HikariDataSource pool) {
+        HikariPoolMXBean pooling = pool.getHikariPoolMXBean();
+        return pooling == null ? 0 : pooling.getActiveConnections() + pooling.getThreadsAwaitingConnection();
+    }
+
+    /**
+     * The primary is wrapped after Spring resolved its destroy method, so this proxy closes it too.
+     */
+    @Override
+    public void close() {
+        replicaPools.forEach(HikariDataSource::close);
+        try {
+            if (primary.isWrapperFor(HikariDataSource.class)) {
+                primary.unwrap(HikariDataSource.class).close();
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Could not close primary pool", exception);
+        }
+    }
+
+    private class ReplicaDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return selectReplica().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return selectReplica().getConnection(username, password);
+        }
+    }
+}
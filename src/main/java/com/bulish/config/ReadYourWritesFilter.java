@@ -0,0 +1,76 @@
+package com.bulish.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for clients of a replicated database: a modifying request sets a cookie with the time of
+ * the write, and reads that carry a cookie younger than the window go to the primary, so a client never
+ * reads its own write from a replica that has not replayed it yet. Other clients keep reading replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String LAST_WRITE_COOKIE = "last-write";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (!UserRequests.isRead(request)) {
+            // set before the chain, the response is usually committed after it
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(LAST_WRITE_COOKIE, Long.toString(now))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .maxAge(window.toSeconds() + 1)
+                    .build()
+                    .toString());
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!wroteWithinWindow(request, now)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Boolean previous = DataSourceRouting.requirePrimary();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.restore(previous);
+        }
+    }
+
+    private boolean wroteWithinWindow(HttpServletRequest request, long now) {
+        Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            long lastWrite = Long.parseLong(cookie.getValue());
+            return now - lastWrite < window.toMillis();
+        } catch (NumberFormatException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return window.isZero();
+    }
+}
@@ -0,0 +1,42 @@
+package com.bulish.config;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only transactions that go to a replica may see rows older than the primary, so they read the
+ * second-level cache but never put into it. Otherwise a lagging replica could leave a stale user cached
+ * for reads that are pinned to the primary.
+ */
+class ReplicaReadJpaDialect extends DeadlineJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || DataSourceRouting.isPrimaryRequired()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReplicaReadTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaReadTransactionData replicaRead) {
+            replicaRead.session().setCacheMode(replicaRead.previousCacheMode());
+            super.cleanupTransaction(replicaRead.transactionData());
+            return;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private record ReplicaReadTransactionData(Object transactionData, Session session, CacheMode previousCacheMode) {
+    }
+}
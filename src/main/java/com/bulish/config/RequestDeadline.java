@@ -0,0 +1,56 @@
+package com.bulish.config;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the request handled by the current thread, set by {@link RequestDeadlineFilter}. Transactions
+ * started before it cap their statements to the remaining time ({@link DeadlineJpaDialect}), and fail at once
+ * when it has passed.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static boolean isSet() {
+        return DEADLINE_NANOS.get() != null;
+    }
+
+    /**
+     * Nanoseconds left until the deadline, zero or negative once it has passed, {@link Long#MAX_VALUE} without one.
+     */
+    public static long remainingNanos() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    /**
+     * Runs work shared with other requests, such as a cache load, without the deadline of this one.
+     */
+    public static <T> T detached(Supplier<T> action) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.remove();
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static Long start(Duration timeout) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(System.nanoTime() + timeout.toNanos());
+        return previous;
+    }
+
+    static void restore(Long previous) {
+        if (previous == null) {
+            DEADLINE_NANOS.remove();
+        } else {
+            DEADLINE_NANOS.set(previous);
+        }
+    }
+}
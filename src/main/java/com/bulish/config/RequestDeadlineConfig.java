@@ -0,0 +1,39 @@
+package com.bulish.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Request deadlines on the {@code /users} endpoints, see {@link RequestDeadlineFilter} and {@link DeadlineJpaDialect}.
+ */
+@Configuration
+public class RequestDeadlineConfig {
+
+    @Bean
+    public static BeanPostProcessor deadlineJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // after afterPropertiesSet, which takes the dialect from the entity manager factory;
+                // ReadReplicaConfig sets a subclass, whichever of the two runs last
+                if (bean instanceof JpaTransactionManager transactionManager
+                        && !(transactionManager.getJpaDialect() instanceof DeadlineJpaDialect)) {
+                    transactionManager.setJpaDialect(new DeadlineJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public RequestDeadlineFilter requestDeadlineFilter(
+            @Value("${request.deadline.read-timeout:0s}") Duration readTimeout,
+            @Value("${request.deadline.write-timeout:0s}") Duration writeTimeout) {
+        return new RequestDeadlineFilter(readTimeout, writeTimeout);
+    }
+}
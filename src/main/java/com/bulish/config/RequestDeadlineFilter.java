@@ -0,0 +1,71 @@
+package com.bulish.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Starts the {@link RequestDeadline} of a {@code /users} request: the client may send how long it waits in
+ * {@value #TIMEOUT_HEADER} (milliseconds), capped by the default of reads or writes. A zero default leaves
+ * requests without the header unbounded. Async requests such as the export stream on another thread,
+ * outside of the deadline.
+ */
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+
+    public RequestDeadlineFilter(Duration readTimeout, Duration writeTimeout) {
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Duration timeout = timeout(request);
+        if (timeout == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Long previous = RequestDeadline.start(timeout);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.restore(previous);
+        }
+    }
+
+    private Duration timeout(HttpServletRequest request) {
+        Duration endpointDefault = UserRequests.isRead(request) ? readTimeout : writeTimeout;
+        Duration requested = requestedTimeout(request);
+        if (requested == null) {
+            return endpointDefault.isZero() ? null : endpointDefault;
+        }
+        return endpointDefault.isZero() || requested.compareTo(endpointDefault) < 0 ? requested : endpointDefault;
+    }
+
+    private static Duration requestedTimeout(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis(Math.max(0, Long.parseLong(header.trim())));
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !UserRequests.isUsers(request);
+    }
+}
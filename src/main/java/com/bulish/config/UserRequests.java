@@ -0,0 +1,36 @@
+package com.bulish.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+
+import java.util.Set;
+
+/**
+ * Classifies requests for the filters in front of the users resource.
+ */
+final class UserRequests {
+
+    private static final String USERS_PATH = "/users";
+
+    private static final Set<String> READ_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    // POST endpoints that only read, e.g. lookups that take their ids in a body
+    private static final Set<String> READ_PATHS = Set.of(USERS_PATH + "/lookup");
+
+    private UserRequests() {
+    }
+
+    static boolean isRead(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod()) || READ_PATHS.contains(path(request));
+    }
+
+    static boolean isUsers(HttpServletRequest request) {
+        String path = path(request);
+        return path.equals(USERS_PATH) || path.startsWith(USERS_PATH + "/");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
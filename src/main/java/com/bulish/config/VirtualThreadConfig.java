@@ -0,0 +1,49 @@
+package com.bulish.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Active when {@code spring.threads.virtual.enabled=true}. Tomcat and the async executors then run on virtual
+ * threads, so the number of concurrent requests is no longer capped by a thread pool and the connection pool
+ * becomes the limit. The Hikari pool is fronted by {@link ConnectionBulkheadDataSource} sized to the pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static ConnectionBulkheadPostProcessor connectionBulkheadPostProcessor() {
+        return new ConnectionBulkheadPostProcessor();
+    }
+
+    /**
+     * Ordered, so it wraps the Hikari pool before {@link ReadReplicaConfig} puts the routing proxy in front of it.
+     * The factory method returns this type because post processor order is read from the declared bean type.
+     */
+    static final class ConnectionBulkheadPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                log.info("virtual threads enabled, limit {} to {} concurrent connections",
+                        beanName, hikari.getMaximumPoolSize());
+                return new ConnectionBulkheadDataSource(hikari, hikari.getMaximumPoolSize(),
+                        hikari.getConnectionTimeout());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -1,19 +1,37 @@
 package com.bulish.controller;
 
+import com.bulish.dto.UserBatchDto;
 import com.bulish.dto.UserDto;
+import com.bulish.dto.UserLookup;
+import com.bulish.dto.UserLookupDto;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.dto.UserSearchCriteria;
+import com.bulish.mapper.UserNdjsonWriter;
 import com.bulish.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
 import org.springframework.hateoas.CollectionModel;
-import org.springframework.hateoas.Link;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -22,7 +40,10 @@ import java.util.stream.Collectors;
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     private final UserService userService;
+    private final UserNdjsonWriter ndjsonWriter;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -30,19 +51,106 @@ public class UserController {
         return toModel(userService.saveNewUser(newUser));
     }
 
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CollectionModel<EntityModel<UserDto>> createBatch(@RequestBody @Valid UserBatchDto batch) {
+        UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+        List<EntityModel<UserDto>> users = userService.saveNewUsers(batch.getUsers()).stream()
+                .map(user -> toModel(user, links))
+                .collect(Collectors.toList());
+
+        return CollectionModel.of(users, links.users());
+    }
+
+    @PostMapping("/lookup")
+    public UserLookupModel lookupUsers(@RequestBody @Valid UserLookupDto lookup) {
+        UserLookup result = userService.findByIds(lookup.getIds());
+        UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+        List<EntityModel<UserDto>> users = result.getUsers().stream()
+                .map(user -> toModel(user, links))
+                .collect(Collectors.toList());
+
+        return new UserLookupModel(users, result.getMissingIds(), links.users());
+    }
+
     @GetMapping("/{id}")
-    public EntityModel<UserDto> findUserById(@PathVariable("id") Long id) {
-        return toModel(userService.findById(id));
+    public EntityModel<UserDto> findUserById(@PathVariable("id") Long id, WebRequest request) {
+        UserDto user = userService.findById(id);
+        if (user.getVersion() != null && request.checkNotModified(userETag(user))) {
+            return null;
+        }
+        return toModel(user);
     }
 
     @GetMapping
-    public CollectionModel<EntityModel<UserDto>> findAllUsers() {
-        List<EntityModel<UserDto>> users = userService.findAll().stream()
-                .map(this::toModel)
+    public CollectionModel<EntityModel<UserDto>> findAllUsers(@RequestParam(name = "cursor", required = false) String cursor,
+                                                              @RequestParam(name = "size", required = false) Integer size,
+                                                              WebRequest request) {
+        if (cursor == null && size == null) {
+            // the version is read before the users, so the ETag is never newer than the content
+            if (request.checkNotModified(collectionETag(userService.findCollectionVersion()))) {
+                return null;
+            }
+            UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+            List<EntityModel<UserDto>> users = userService.findAll().stream()
+                    .map(user -> toModel(user, links))
+                    .collect(Collectors.toList());
+
+            return CollectionModel.of(users, links.users().withSelfRel());
+        }
+
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        UserPage page = userService.findPage(cursor, pageSize);
+        if (request.checkNotModified(pageETag(page))) {
+            return null;
+        }
+        UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+        List<EntityModel<UserDto>> users = page.getUsers().stream()
+                .map(user -> toModel(user, links))
+                .collect(Collectors.toList());
+
+        CollectionModel<EntityModel<UserDto>> model = CollectionModel.of(users,
+                linkTo(methodOn(UserController.class).findAllUsers(cursor, pageSize, null)).withSelfRel());
+        if (page.hasNext()) {
+            model.add(linkTo(methodOn(UserController.class).findAllUsers(page.getNextCursor(), pageSize, null))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    @GetMapping("/search")
+    public CollectionModel<EntityModel<UserDto>> searchUsers(@Valid UserSearchCriteria criteria,
+                                                             @RequestParam(name = "cursor", required = false) String cursor,
+                                                             @RequestParam(name = "size", required = false) Integer size,
+                                                             WebRequest request) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        UserPage page = userService.search(criteria, cursor, pageSize);
+        if (request.checkNotModified(pageETag(page))) {
+            return null;
+        }
+        UserLinkFactory links = UserLinkFactory.forCurrentRequest();
+        List<EntityModel<UserDto>> users = page.getUsers().stream()
+                .map(user -> toModel(user, links))
                 .collect(Collectors.toList());
 
-        Link selfLink = linkTo(methodOn(UserController.class).findAllUsers()).withSelfRel();
-        return CollectionModel.of(users, selfLink);
+        CollectionModel<EntityModel<UserDto>> model = CollectionModel.of(users,
+                searchLink(criteria, cursor, pageSize, IanaLinkRelations.SELF));
+        if (page.hasNext()) {
+            model.add(searchLink(criteria, page.getNextCursor(), pageSize, IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = ndjsonWriter.createGenerator(outputStream)) {
+                userService.exportAll(user -> ndjsonWriter.writeLine(generator, user));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @PutMapping("/{id}")
@@ -51,19 +159,53 @@ public class UserController {
         userService.update(id, updatedUser);
     }
 
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchUser(@PathVariable("id") Long id, @RequestBody @Valid UserPatchDto patch) {
+        userService.patch(id, patch);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteUser(@PathVariable("id") Long id) {
         userService.deleteById(id);
     }
 
+    private static Link searchLink(UserSearchCriteria criteria, String cursor, int size, LinkRelation relation) {
+        String href = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .queryParamIfPresent("minAge", Optional.ofNullable(criteria.getMinAge()))
+                .queryParamIfPresent("maxAge", Optional.ofNullable(criteria.getMaxAge()))
+                .queryParamIfPresent("namePrefix", Optional.ofNullable(criteria.getNamePrefix()))
+                .queryParamIfPresent("createdFrom", Optional.ofNullable(criteria.getCreatedFrom()))
+                .queryParamIfPresent("createdTo", Optional.ofNullable(criteria.getCreatedTo()))
+                .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                .queryParam("size", size)
+                .encode()
+                .toUriString();
+        return Link.of(href, relation);
+    }
+
+    private static String userETag(UserDto user) {
+        return "\"" + user.getId() + "-" + user.getVersion() + "\"";
+    }
+
+    private static String collectionETag(long version) {
+        return "\"users-" + version + "\"";
+    }
+
+    private static String pageETag(UserPage page) {
+        StringBuilder content = new StringBuilder();
+        page.getUsers().forEach(user ->
+                content.append(user.getId()).append(':').append(user.getVersion()).append(';'));
+        content.append(page.getNextCursor());
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     private EntityModel<UserDto> toModel(UserDto user) {
-        EntityModel<UserDto> userModel = EntityModel.of(user);
-        userModel.add(linkTo(methodOn(UserController.class).findUserById(user.getId())).withSelfRel());
-        userModel.add(linkTo(methodOn(UserController.class).findAllUsers()).withRel("users"));
-        userModel.add(Link.of(linkTo(UserController.class).slash(user.getId()).toString(), "update"));
-        userModel.add(Link.of(linkTo(UserController.class).slash(user.getId()).toString(), "delete"));
+        return toModel(user, UserLinkFactory.forCurrentRequest());
+    }
 
-        return userModel;
+    EntityModel<UserDto> toModel(UserDto user, UserLinkFactory links) {
+        return EntityModel.of(user, links.forUser(user.getId()));
     }
 }
@@ -0,0 +1,45 @@
+package com.bulish.controller;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Links of the users resource resolved once against the current request. Per user only the id is appended
+ * to the precomputed base, instead of building a {@code methodOn} proxy and resolving the mappings for every user.
+ */
+final class UserLinkFactory {
+
+    private final Link usersLink;
+    private final String usersHref;
+
+    private UserLinkFactory(Link usersLink) {
+        this.usersLink = usersLink;
+        this.usersHref = usersLink.getHref();
+    }
+
+    static UserLinkFactory forCurrentRequest() {
+        return new UserLinkFactory(linkTo(UserController.class).withRel("users"));
+    }
+
+    Link users() {
+        return usersLink;
+    }
+
+    List<Link> forUser(Long id) {
+        if (id == null) {
+            return List.of(
+                    linkTo(methodOn(UserController.class).findUserById(null, null)).withSelfRel(),
+                    usersLink,
+                    Link.of(usersHref, "update"),
+                    Link.of(usersHref, "delete"));
+        }
+
+        Link self = Link.of(usersHref + "/" + id, IanaLinkRelations.SELF);
+        return List.of(self, usersLink, self.withRel("update"), self.withRel("delete"));
+    }
+}
@@ -0,0 +1,26 @@
+package com.bulish.controller;
+
+import com.bulish.dto.UserDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+
+import java.util.List;
+
+/**
+ * Users found by a lookup, embedded like any other users collection, next to the ids that were not found.
+ */
+public class UserLookupModel extends CollectionModel<EntityModel<UserDto>> {
+
+    private final List<Long> missingIds;
+
+    UserLookupModel(List<EntityModel<UserDto>> users, List<Long> missingIds, Link link) {
+        super(users, List.of(link), ResolvableType.forClassWithGenerics(EntityModel.class, UserDto.class));
+        this.missingIds = missingIds;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
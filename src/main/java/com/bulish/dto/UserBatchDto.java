@@ -0,0 +1,22 @@
+package com.bulish.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchDto {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    @NotEmpty(message = "users should be specified")
+    @Size(max = MAX_BATCH_SIZE, message = "batch should contain at most " + MAX_BATCH_SIZE + " users")
+    private List<@Valid UserDto> users;
+}
@@ -0,0 +1,45 @@
+package com.bulish.dto;
+
+import com.bulish.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page in {@code (created_at, id)} order, passed to clients as an opaque string.
+ */
+@Data
+@AllArgsConstructor
+public class UserCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public static UserCursor of(UserDto user) {
+        return new UserCursor(user.getCreatedAt(), user.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return new UserCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException exception) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.bulish.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import org.springframework.hateoas.RepresentationModel;
@@ -29,4 +30,7 @@ public class UserDto extends RepresentationModel<UserDto> {
     private Integer age;
 
     private LocalDateTime createdAt;
+
+    @JsonIgnore
+    private Long version;
 }
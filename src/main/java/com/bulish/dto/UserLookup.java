@@ -0,0 +1,16 @@
+package com.bulish.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Result of a lookup by ids: found users and missing ids, both in the order the ids were requested.
+ */
+@Data
+@AllArgsConstructor
+public class UserLookup {
+    private final List<UserDto> users;
+    private final List<Long> missingIds;
+}
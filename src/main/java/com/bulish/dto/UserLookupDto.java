@@ -0,0 +1,22 @@
+package com.bulish.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupDto {
+
+    public static final int MAX_IDS = 1000;
+
+    @NotEmpty(message = "ids should be specified")
+    @Size(max = MAX_IDS, message = "lookup should contain at most " + MAX_IDS + " ids")
+    private List<@NotNull(message = "id should be specified") Long> ids;
+}
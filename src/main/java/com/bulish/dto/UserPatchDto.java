@@ -0,0 +1,33 @@
+package com.bulish.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+/**
+ * Fields to change in a PATCH request, {@code null} keeps the current value.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class UserPatchDto {
+
+    @Pattern(regexp = ".*\\S.*", message = "name should not be blank")
+    @Size(min=3, max=20, message = "name size should be between 3 and 20 letters")
+    private String name;
+
+    @Pattern(regexp = ".*\\S.*", message = "email should not be blank")
+    @Email(message = "email should have valid structure example example@yandex.ru")
+    private String email;
+
+    @Min(value = 7, message = "min valid age 7")
+    @Max(value = 100, message = "max valid age 100")
+    private Integer age;
+
+    @JsonIgnore
+    @AssertTrue(message = "at least one of name, email, age should be specified")
+    public boolean isAnyFieldSpecified() {
+        return name != null || email != null || age != null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bulish.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of {@code GET /users/search}, a {@code null} field adds no predicate to the query.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class UserSearchCriteria {
+
+    @PositiveOrZero(message = "minAge should not be negative")
+    private Integer minAge;
+
+    @PositiveOrZero(message = "maxAge should not be negative")
+    private Integer maxAge;
+
+    @Size(min = 1, max = 20, message = "namePrefix size should be between 1 and 20 letters")
+    private String namePrefix;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    @JsonIgnore
+    @AssertTrue(message = "minAge should not be greater than maxAge")
+    public boolean isAgeRangeValid() {
+        return minAge == null || maxAge == null || minAge <= maxAge;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "createdFrom should be before createdTo")
+    public boolean isCreatedWindowValid() {
+        return createdFrom == null || createdTo == null || createdFrom.isBefore(createdTo);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bulish.exceptions;
+
+import org.springframework.transaction.TransactionTimedOutException;
+
+/**
+ * A transaction was about to start after the deadline of its request. Thrown as a transaction exception,
+ * so the transaction manager releases the connection and rethrows it unchanged.
+ */
+public class DeadlineExceededException extends TransactionTimedOutException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.bulish.exceptions;
+
+public class EventCodecException extends RuntimeException {
+    public EventCodecException(String message) {
+        super(message);
+    }
+
+    public EventCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
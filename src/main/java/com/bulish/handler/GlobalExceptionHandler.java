@@ -1,9 +1,14 @@
 package com.bulish.handler;
 
 import com.bulish.dto.ErrorResponse;
+import com.bulish.exceptions.DeadlineExceededException;
 import com.bulish.exceptions.EmailAlreadyExistsException;
+import com.bulish.exceptions.InvalidCursorException;
 import com.bulish.exceptions.UserNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -53,6 +58,38 @@ public class GlobalExceptionHandler {
         return constructErrorResponse("Email duplicate", ex.getMessage(), null );
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        log.error("DataIntegrityViolationException occurred: {}", ex.getMessage(), ex);
+
+        return constructErrorResponse("Data conflict", "Request conflicts with existing data", null);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        log.error("OptimisticLockingFailureException occurred: {}", ex.getMessage());
+
+        return constructErrorResponse("Concurrent modification", "User was modified concurrently, retry the request", null);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCursorException(InvalidCursorException ex) {
+        log.error("InvalidCursorException occurred: {}", ex.getMessage(), ex);
+
+        return constructErrorResponse("Invalid cursor", ex.getMessage(), null);
+    }
+
+    @ExceptionHandler({DeadlineExceededException.class, QueryTimeoutException.class})
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ErrorResponse handleDeadlineExceededException(RuntimeException ex) {
+        log.error("Request deadline exceeded: {}", ex.getMessage());
+
+        return constructErrorResponse("Deadline exceeded", "Request did not complete within its deadline", null);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleServerException(Exception ex) {
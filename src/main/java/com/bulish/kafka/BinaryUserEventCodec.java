@@ -0,0 +1,89 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.exceptions.EventCodecException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact versioned format: {@code version u8 | operation code u8 | email length varint | email utf-8}.
+ * Versions and operation codes come from {@link UserEventSchemaRegistry}; payloads of every known version
+ * can be decoded.
+ */
+@Component
+@RequiredArgsConstructor
+public class BinaryUserEventCodec implements UserEventCodec {
+
+    public static final String NAME = "binary";
+
+    private final UserEventSchemaRegistry schemaRegistry;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(UserOperationEvent event) {
+        if (event.getUserOperation() == null || event.getEmail() == null) {
+            throw new EventCodecException("Event operation and email are required: " + event);
+        }
+
+        int version = schemaRegistry.currentVersion();
+        byte[] email = event.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[2 + varIntSize(email.length) + email.length];
+        payload[0] = (byte) version;
+        payload[1] = (byte) schemaRegistry.operationCode(version, event.getUserOperation());
+        int position = writeVarInt(payload, 2, email.length);
+        System.arraycopy(email, 0, payload, position, email.length);
+        return payload;
+    }
+
+    @Override
+    public UserOperationEvent decode(byte[] payload) {
+        if (payload.length < 3) {
+            throw new EventCodecException("Binary event is too short: " + payload.length + " bytes");
+        }
+
+        int version = payload[0] & 0xFF;
+        int position = 2;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= payload.length || shift > 28) {
+                throw new EventCodecException("Malformed email length in binary event");
+            }
+            byte next = payload[position++];
+            length |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                break;
+            }
+        }
+        if (length != payload.length - position) {
+            throw new EventCodecException("Email length " + length + " does not match binary event size");
+        }
+
+        return UserOperationEvent.builder()
+                .userOperation(schemaRegistry.operation(version, payload[1] & 0xFF))
+                .email(new String(payload, position, length, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarInt(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+}
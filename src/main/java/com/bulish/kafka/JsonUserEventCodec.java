@@ -0,0 +1,41 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.exceptions.EventCodecException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class JsonUserEventCodec implements UserEventCodec {
+
+    public static final String NAME = "json";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(UserOperationEvent event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (IOException exception) {
+            throw new EventCodecException("Error while serialization " + exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public UserOperationEvent decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, UserOperationEvent.class);
+        } catch (IOException exception) {
+            throw new EventCodecException("Error while deserialization " + exception.getMessage(), exception);
+        }
+    }
+}
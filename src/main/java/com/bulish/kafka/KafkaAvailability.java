@@ -0,0 +1,65 @@
+package com.bulish.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks whether the broker accepts events. After a failed send the outbox is left alone for an
+ * exponentially growing backoff, so during an outage events pile up in the outbox table instead of
+ * tying up the relay, the dispatcher and their database connections in sends that cannot succeed.
+ * The first send after the backoff is the probe: its success resets the state.
+ */
+@Component
+@Slf4j
+public class KafkaAvailability {
+
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final LongSupplier nanoTime;
+
+    private int failures;
+    private long retryAtNanos;
+
+    @Autowired
+    public KafkaAvailability(@Value("${outbox.kafka.backoff-initial-ms:500}") long initialBackoffMs,
+                             @Value("${outbox.kafka.backoff-max-ms:30000}") long maxBackoffMs,
+                             MeterRegistry meterRegistry) {
+        this(initialBackoffMs, maxBackoffMs, System::nanoTime);
+        Gauge.builder("outbox.kafka.available", this, availability -> availability.isAvailable() ? 1 : 0)
+                .description("1 while events are sent to Kafka, 0 while they wait in the outbox for the backoff")
+                .register(meterRegistry);
+    }
+
+    KafkaAvailability(long initialBackoffMs, long maxBackoffMs, LongSupplier nanoTime) {
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMs);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMs);
+        this.nanoTime = nanoTime;
+    }
+
+    public synchronized boolean isAvailable() {
+        return failures == 0 || nanoTime.getAsLong() - retryAtNanos >= 0;
+    }
+
+    public synchronized void onSuccess() {
+        if (failures > 0) {
+            log.info("kafka is available again after {} failed attempts", failures);
+        }
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        long backoffNanos = failures > 30 ? maxBackoffNanos
+                : Math.min(maxBackoffNanos, initialBackoffNanos << (failures - 1));
+        retryAtNanos = nanoTime.getAsLong() + backoffNanos;
+        log.warn("kafka is unavailable, events are kept in the outbox, next attempt in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+    }
+}
@@ -1,34 +1,72 @@
 package com.bulish.kafka;
 
 import com.bulish.dto.UserOperationEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import lombok.RequiredArgsConstructor;
+import com.bulish.exceptions.EventCodecException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class KafkaUserEventProducer {
-    private final Producer<String, String> producer;
-    private final ObjectMapper objectMapper;
+    private final Producer<String, byte[]> producer;
+    private final UserEventCodec codec;
+    private final byte[] codecHeader;
+    private final Timer sendTimer;
+    private final Counter sendErrors;
+    private final Counter serializationErrors;
+
+    public KafkaUserEventProducer(Producer<String, byte[]> producer,
+                                  UserEventCodecs codecs,
+                                  @Value("${kafka.events.codec:json}") String codecName,
+                                  MeterRegistry meterRegistry) {
+        this.producer = producer;
+        this.codec = codecs.get(codecName);
+        this.codecHeader = codec.name().getBytes(StandardCharsets.UTF_8);
+        this.sendTimer = Timer.builder("kafka.user.events.send")
+                .description("Time from send until the broker acknowledged the event")
+                .tag("codec", codec.name())
+                .register(meterRegistry);
+        this.sendErrors = errorCounter(meterRegistry, "send");
+        this.serializationErrors = errorCounter(meterRegistry, "serialization");
+    }
 
-    public void sendEvent(String topic, String key, UserOperationEvent event) {
+    public Future<RecordMetadata> sendEvent(String topic, String key, UserOperationEvent event) {
         try {
-            String eventJson = objectMapper.writeValueAsString(event);
-            ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, eventJson);
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, codec.encode(event));
+            record.headers().add(UserEventCodec.HEADER, codecHeader);
 
-            producer.send(record, (metadata, exception) -> {
+            long startNanos = System.nanoTime();
+            return producer.send(record, (metadata, exception) -> {
                 if (exception != null) {
+                    sendErrors.increment();
                     log.error("error while send event {}", exception.getMessage());
                 } else {
-                    log.debug("event {} is send with key {} to topic {}", eventJson, key, metadata.topic());
+                    sendTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    log.debug("event {} is send with key {} to topic {}", event, key, metadata.topic());
                 }
             });
-        } catch (JsonProcessingException exception) {
+        } catch (EventCodecException exception) {
+            serializationErrors.increment();
             log.error("Error while serialization {}", exception.getMessage());
+            return CompletableFuture.failedFuture(exception);
         }
     }
+
+    private Counter errorCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("kafka.user.events.errors")
+                .description("Events that could not be sent")
+                .tag("codec", codec.name())
+                .tag("type", type)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,97 @@
+package com.bulish.kafka;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue of outbox ids (D. Vyukov's array queue).
+ * Each slot carries a sequence number that says whose turn it is, so producers and consumers only
+ * contend on one CAS and never block each other. The capacity is rounded up to a power of two.
+ */
+final class OutboxIdRingBuffer {
+
+    static final long EMPTY = -1L;
+
+    private final int mask;
+    private final long[] ids;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    OutboxIdRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity should be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.ids = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} when the buffer is full
+     */
+    boolean offer(long id) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    ids[index] = id;
+                    // publishes the id, the consumer reads it after seeing this sequence
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest id or {@link #EMPTY}
+     */
+    long poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    long id = ids[index];
+                    sequences.set(index, position + mask + 1);
+                    return id;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return EMPTY;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    int drainTo(long[] batch) {
+        int count = 0;
+        long id;
+        while (count < batch.length && (id = poll()) != EMPTY) {
+            batch[count++] = id;
+        }
+        return count;
+    }
+
+    int size() {
+        return (int) Math.clamp(tail.get() - head.get(), 0, capacity());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,18 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperationEvent;
+
+/**
+ * Wire format of {@link UserOperationEvent} values. The producer writes {@link #name()} into the
+ * {@value #HEADER} record header, consumers pick the codec from it through {@link UserEventCodecs}.
+ */
+public interface UserEventCodec {
+
+    String HEADER = "event-codec";
+
+    String name();
+
+    byte[] encode(UserOperationEvent event);
+
+    UserOperationEvent decode(byte[] payload);
+}
@@ -0,0 +1,47 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.exceptions.EventCodecException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * All available event codecs by name. Records without the {@value UserEventCodec#HEADER} header were written
+ * before codecs existed and are JSON.
+ */
+@Component
+public class UserEventCodecs {
+
+    private final Map<String, UserEventCodec> codecs;
+
+    public UserEventCodecs(List<UserEventCodec> codecs) {
+        this.codecs = codecs.stream()
+                .collect(Collectors.toUnmodifiableMap(UserEventCodec::name, Function.identity()));
+    }
+
+    public UserEventCodec get(String name) {
+        UserEventCodec codec = codecs.get(name);
+        if (codec == null) {
+            throw new EventCodecException("Unknown event codec " + name + ", available: " + codecs.keySet());
+        }
+        return codec;
+    }
+
+    public UserEventCodec forHeaders(Headers headers) {
+        Header header = headers.lastHeader(UserEventCodec.HEADER);
+        return header == null
+                ? get(JsonUserEventCodec.NAME)
+                : get(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    public UserOperationEvent decode(Headers headers, byte[] payload) {
+        return forHeaders(headers).decode(payload);
+    }
+}
@@ -0,0 +1,202 @@
+package com.bulish.kafka;
+
+import com.bulish.repository.UserEventOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fast path of the outbox: ids of committed outbox rows are handed over through a bounded lock-free
+ * ring buffer to a dedicated sender thread, which publishes them in batches. The committing thread only
+ * does a CAS, so a slow or unavailable broker never adds to request latency.
+ * <p>
+ * Every event is already durable in the outbox when it is enqueued, so an id that does not fit into
+ * the buffer is not lost: {@link UserEventOutboxRelay} sends it once the grace period passed.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "outbox.dispatch.enabled", havingValue = "true", matchIfMissing = true)
+public class UserEventDispatcher {
+
+    public enum OverflowPolicy {
+        /** wait up to {@code outbox.dispatch.block-timeout-ms} for a free slot, then spill */
+        BLOCK,
+        /** evict the oldest queued id to make room, the evicted event is left to the relay */
+        DROP_OLDEST,
+        /** leave the new event to the relay */
+        SPILL
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final UserEventOutboxRepository outboxRepository;
+    private final UserEventOutboxSender outboxSender;
+    private final KafkaAvailability kafkaAvailability;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxIdRingBuffer queue;
+    private final long[] batch;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Counter overflows;
+    private final Counter deferred;
+    private final Thread sender;
+
+    private volatile boolean running;
+    private volatile boolean idle;
+
+    public UserEventDispatcher(UserEventOutboxRepository outboxRepository,
+                               UserEventOutboxSender outboxSender,
+                               KafkaAvailability kafkaAvailability,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${outbox.dispatch.queue-capacity:8192}") int queueCapacity,
+                               @Value("${outbox.dispatch.batch-size:500}") int batchSize,
+                               @Value("${outbox.dispatch.overflow-policy:SPILL}") OverflowPolicy overflowPolicy,
+                               @Value("${outbox.dispatch.block-timeout-ms:50}") long blockTimeoutMs,
+                               MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.outboxSender = outboxSender;
+        this.kafkaAvailability = kafkaAvailability;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new OutboxIdRingBuffer(queueCapacity);
+        this.batch = new long[batchSize];
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.sender = Thread.ofPlatform().name("user-event-dispatcher").daemon().unstarted(this::run);
+
+        Gauge.builder("outbox.dispatch.queue.depth", queue, OutboxIdRingBuffer::size)
+                .description("Outbox events waiting for the dispatcher thread")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dispatch.queue.capacity", queue, OutboxIdRingBuffer::capacity)
+                .register(meterRegistry);
+        this.overflows = Counter.builder("outbox.dispatch.overflow")
+                .description("Events that did not fit into the dispatch queue and were left to the relay")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry);
+        this.deferred = Counter.builder("outbox.dispatch.deferred")
+                .description("Events left to the relay because Kafka was unavailable")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(sender);
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void dispatchAfterCommit(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(this::enqueue);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(UserEventDispatcher.this::enqueue);
+            }
+        });
+    }
+
+    void enqueue(long id) {
+        if (!queue.offer(id) && !offerOnOverflow(id)) {
+            overflows.increment();
+            log.debug("dispatch queue is full, event {} is left to the outbox relay", id);
+        }
+        if (idle) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    private boolean offerOnOverflow(long id) {
+        return switch (overflowPolicy) {
+            case SPILL -> false;
+            case DROP_OLDEST -> {
+                while (!queue.offer(id)) {
+                    if (queue.poll() != OutboxIdRingBuffer.EMPTY) {
+                        overflows.increment();
+                    }
+                }
+                yield true;
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                boolean offered;
+                while (!(offered = queue.offer(id)) && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                }
+                yield offered;
+            }
+        };
+    }
+
+    /**
+     * Sends one batch of queued events.
+     *
+     * @return how many ids were taken from the queue
+     */
+    int dispatchBatch() {
+        int count = queue.drainTo(batch);
+        if (count == 0) {
+            return 0;
+        }
+        if (!kafkaAvailability.isAvailable()) {
+            // the relay sends them after the backoff, in order with the events that failed before
+            deferred.increment(count);
+            return count;
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(batch[i]);
+        }
+        try {
+            // rows the relay has already locked or sent are skipped, as are rows behind an older event of the same key
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxSender.sendAndDelete(outboxRepository.lockDispatchable(ids)));
+        } catch (RuntimeException exception) {
+            log.error("error while dispatch outbox events {}", exception.getMessage());
+        }
+        return count;
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Ids still queued on shutdown are not sent here, the relay picks them up from the outbox.
+     */
+    private void run() {
+        while (running) {
+            if (dispatchBatch() > 0) {
+                continue;
+            }
+            idle = true;
+            if (queue.size() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
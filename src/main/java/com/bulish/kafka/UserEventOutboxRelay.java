@@ -0,0 +1,57 @@
+package com.bulish.kafka;
+
+import com.bulish.repository.UserEventOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publishes outbox rows to Kafka. Rows are locked with {@code FOR UPDATE SKIP LOCKED}, so several instances
+ * drain the outbox in parallel without sending the same row twice; a row behind an older event of the same key
+ * that another instance or the dispatcher holds is left for later, so events of one user do not overtake each other.
+ * A row is deleted only after the broker acknowledged it, which gives at-least-once delivery.
+ * <p>
+ * Rows younger than the grace period are left to {@link UserEventDispatcher}, which sends them right after
+ * commit; the relay picks up whatever the dispatcher dropped, spilled or failed to send.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class UserEventOutboxRelay {
+
+    private final UserEventOutboxRepository outboxRepository;
+    private final UserEventOutboxSender outboxSender;
+    private final KafkaAvailability kafkaAvailability;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.grace-period-ms:2000}")
+    private long gracePeriodMs;
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        Integer sent;
+        do {
+            if (!kafkaAvailability.isAvailable()) {
+                return;
+            }
+            sent = transactionTemplate.execute(status -> relayBatch());
+        } while (sent != null && sent == batchSize);
+    }
+
+    private int relayBatch() {
+        LocalDateTime createdBefore = LocalDateTime.now().minusNanos(gracePeriodMs * 1_000_000);
+        int sent = outboxSender.sendAndDelete(outboxRepository.lockNextBatch(batchSize, createdBefore));
+        log.debug("relayed {} outbox events", sent);
+        return sent;
+    }
+}
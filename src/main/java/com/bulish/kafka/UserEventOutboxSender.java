@@ -0,0 +1,145 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.exceptions.EventCodecException;
+import com.bulish.model.UserEventOutbox;
+import com.bulish.repository.UserEventOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.ApiException;
+import org.apache.kafka.common.errors.AuthenticationException;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends locked outbox rows to Kafka and deletes the ones the broker acknowledged. Must be called inside
+ * the transaction that locked the rows. Sending stops at the first event that failed for a reason that may pass,
+ * so the rows left in the outbox keep their order and are sent again, in order, once {@link KafkaAvailability}
+ * allows it. An event Kafka will never accept is moved to user_event_outbox_failed instead, so it does not
+ * hold up the outbox or report the broker as unavailable.
+ */
+@Component
+@Slf4j
+public class UserEventOutboxSender {
+
+    private final UserEventOutboxRepository outboxRepository;
+    private final KafkaUserEventProducer userProducer;
+    private final KafkaAvailability kafkaAvailability;
+    private final Counter failedEvents;
+
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    public UserEventOutboxSender(UserEventOutboxRepository outboxRepository,
+                                 KafkaUserEventProducer userProducer,
+                                 KafkaAvailability kafkaAvailability,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.userProducer = userProducer;
+        this.kafkaAvailability = kafkaAvailability;
+        this.failedEvents = Counter.builder("outbox.failed")
+                .description("Events Kafka rejected for good, moved to user_event_outbox_failed")
+                .register(meterRegistry);
+    }
+
+    public int sendAndDelete(List<UserEventOutbox> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Future<RecordMetadata>> results = new ArrayList<>(batch.size());
+        for (UserEventOutbox event : batch) {
+            Future<RecordMetadata> result = userProducer.sendEvent(event.getTopic(), event.getEventKey(), toEvent(event));
+            results.add(result);
+            if (result.state() == Future.State.FAILED && isRetriable(result.exceptionNow())) {
+                // the broker is unreachable, every further send would block for max.block.ms
+                break;
+            }
+        }
+
+        List<UserEventOutbox> done = new ArrayList<>();
+        int sent = 0;
+        boolean unavailable = false;
+        for (int i = 0; i < results.size(); i++) {
+            Throwable failure = awaitAck(results.get(i));
+            if (failure == null) {
+                sent++;
+            } else if (isRetriable(failure)) {
+                unavailable = true;
+                break;
+            } else {
+                moveToFailed(batch.get(i), failure);
+            }
+            done.add(batch.get(i));
+        }
+
+        if (unavailable) {
+            kafkaAvailability.onFailure();
+        } else {
+            kafkaAvailability.onSuccess();
+        }
+        outboxRepository.deleteAllInBatch(done);
+        log.debug("sent {} of {} outbox events", sent, batch.size());
+        return sent;
+    }
+
+    /**
+     * Whether sending the event again may succeed. Codec errors and errors the broker returned for the record itself,
+     * like {@code RecordTooLargeException}, repeat on every attempt; rejected credentials concern every event and
+     * are waited out like an outage.
+     */
+    static boolean isRetriable(Throwable failure) {
+        Throwable cause = failure instanceof ExecutionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof EventCodecException) {
+            return false;
+        }
+        if (cause instanceof AuthenticationException || cause instanceof AuthorizationException) {
+            return true;
+        }
+        return cause instanceof RetriableException || !(cause instanceof ApiException);
+    }
+
+    /**
+     * @return the failure, null once the broker acknowledged the event
+     */
+    private Throwable awaitAck(Future<RecordMetadata> result) {
+        try {
+            result.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            return null;
+        } catch (ExecutionException | TimeoutException exception) {
+            log.error("error while relay outbox event {}", exception.getMessage());
+            return exception;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return exception;
+        }
+    }
+
+    private void moveToFailed(UserEventOutbox event, Throwable failure) {
+        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+        String error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        log.error("outbox event {} is rejected by kafka, moved to user_event_outbox_failed: {}", event.getId(), error);
+        outboxRepository.copyToFailed(event.getId(), error);
+        failedEvents.increment();
+    }
+
+    private UserOperationEvent toEvent(UserEventOutbox event) {
+        return UserOperationEvent.builder()
+                .userOperation(event.getOperation())
+                .email(event.getEmail())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperation;
+import com.bulish.exceptions.EventCodecException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Local stand-in for a schema registry: the versions of the binary event format and their operation codes,
+ * read from a properties file. Every {@link UserOperation} must have a code in every version.
+ */
+@Component
+public class UserEventSchemaRegistry {
+
+    private final int currentVersion;
+    private final Map<Integer, Map<UserOperation, Integer>> operationCodes = new HashMap<>();
+    private final Map<Integer, Map<Integer, UserOperation>> operations = new HashMap<>();
+
+    public UserEventSchemaRegistry(
+            @Value("${kafka.events.schema-registry:classpath:kafka/user-event-schemas.properties}") Resource schemas) {
+        Properties properties = new Properties();
+        try (InputStream inputStream = schemas.getInputStream()) {
+            properties.load(inputStream);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot read event schemas from " + schemas, exception);
+        }
+
+        this.currentVersion = Integer.parseInt(properties.getProperty("binary.current-version"));
+        for (int version = 1; version <= currentVersion; version++) {
+            Map<UserOperation, Integer> codes = new EnumMap<>(UserOperation.class);
+            Map<Integer, UserOperation> byCode = new HashMap<>();
+            for (UserOperation operation : UserOperation.values()) {
+                String key = "binary.v" + version + ".operation." + operation.name();
+                String code = properties.getProperty(key);
+                if (code == null) {
+                    throw new IllegalStateException("Missing event schema property " + key);
+                }
+                codes.put(operation, Integer.parseInt(code));
+                byCode.put(Integer.parseInt(code), operation);
+            }
+            operationCodes.put(version, codes);
+            operations.put(version, byCode);
+        }
+    }
+
+    public int currentVersion() {
+        return currentVersion;
+    }
+
+    public int operationCode(int version, UserOperation operation) {
+        return schema(operationCodes, version).get(operation);
+    }
+
+    public UserOperation operation(int version, int code) {
+        UserOperation operation = schema(operations, version).get(code);
+        if (operation == null) {
+            throw new EventCodecException("Unknown operation code " + code + " in event schema v" + version);
+        }
+        return operation;
+    }
+
+    private <T> T schema(Map<Integer, T> schemas, int version) {
+        T schema = schemas.get(version);
+        if (schema == null) {
+            throw new EventCodecException("Unknown event schema version " + version);
+        }
+        return schema;
+    }
+}
@@ -2,6 +2,7 @@ package com.bulish.mapper;
 
 import com.bulish.dto.UserDto;
 import com.bulish.model.User;
+import com.bulish.repository.DeletedUser;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -24,6 +25,14 @@ public class UserMapper {
                 .name(user.getName())
                 .email(user.getEmail())
                 .createdAt(user.getCreatedAt())
+                .version(user.getVersion())
+                .build();
+    }
+
+    public UserDto toDeletedUserDto(DeletedUser deletedUser) {
+        return UserDto.builder()
+                .id(deletedUser.getId())
+                .email(deletedUser.getEmail())
                 .build();
     }
 
@@ -0,0 +1,40 @@
+package com.bulish.mapper;
+
+import com.bulish.dto.UserDto;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Component
+public class UserNdjsonWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public UserNdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper.copy().addMixIn(UserDto.class, WithoutLinks.class);
+    }
+
+    public JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(outputStream);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    public void writeLine(JsonGenerator generator, UserDto user) {
+        try {
+            generator.writeObject(user);
+            generator.writeRaw('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @JsonIgnoreProperties("links")
+    private abstract static class WithoutLinks {
+    }
+}
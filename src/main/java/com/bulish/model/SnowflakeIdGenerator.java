@@ -0,0 +1,97 @@
+package com.bulish.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered 64-bit ids in the Snowflake layout: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * {@value #NODE_BITS} bits of node id and {@value #SEQUENCE_BITS} bits of sequence within the millisecond.
+ * Ids from one node only grow, ids from different nodes never collide as long as every node has its own id.
+ * <p>
+ * The last timestamp and sequence are one atomic, advanced with a CAS, without locks. When the sequence of a
+ * millisecond runs out, or the clock steps back, the generator keeps counting from the last id and its time
+ * runs ahead of the clock, by at most {@value #MAX_DRIFT_MILLIS} ms: past that it waits for the clock. A node
+ * restarted after that bound cannot hand out its old ids again; when the clock stepped back across a restart,
+ * the last id issued before it is passed in and the generator refuses to start behind it.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    /**
+     * 2025-01-01T00:00:00Z, the 41 timestamp bits last until 2094.
+     */
+    public static final long EPOCH_MILLIS = 1_735_689_600_000L;
+
+    public static final long MAX_DRIFT_MILLIS = 1000;
+
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    private final long maxDriftMillis;
+    // milliseconds since the epoch << SEQUENCE_BITS | sequence, of the last id
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        this(nodeId, 0);
+    }
+
+    /**
+     * @param lastIssuedId the highest id this node issued before, 0 for none
+     * @throws IllegalStateException when the clock is more than {@value #MAX_DRIFT_MILLIS} ms behind that id
+     */
+    public SnowflakeIdGenerator(long nodeId, long lastIssuedId) {
+        this(nodeId, lastIssuedId, MAX_DRIFT_MILLIS, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        this(nodeId, 0, MAX_DRIFT_MILLIS, clock);
+    }
+
+    SnowflakeIdGenerator(long nodeId, long lastIssuedId, long maxDriftMillis, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be within 0.." + MAX_NODE_ID + ", got " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+        this.maxDriftMillis = maxDriftMillis;
+        if (lastIssuedId > 0) {
+            long lastMillis = timestampMillis(lastIssuedId);
+            long behindMillis = lastMillis - clock.getAsLong();
+            if (behindMillis > maxDriftMillis) {
+                throw new IllegalStateException("clock is " + behindMillis + " ms behind the last issued id "
+                        + lastIssuedId + ", ids would repeat");
+            }
+            last.set((lastMillis - EPOCH_MILLIS) << SEQUENCE_BITS | SEQUENCE_MASK);
+        }
+    }
+
+    public long nextId() {
+        while (true) {
+            long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            long previous = last.get();
+            long next = Math.max(previous + 1, now);
+            if ((next >>> SEQUENCE_BITS) - (now >>> SEQUENCE_BITS) > maxDriftMillis) {
+                // too far ahead of the clock, a restart could repeat these ids
+                LockSupport.parkNanos(this, WAIT_NANOS);
+            } else if (last.compareAndSet(previous, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeBits | next & SEQUENCE_MASK;
+            }
+        }
+    }
+
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static long nodeId(long id) {
+        return id >>> SEQUENCE_BITS & MAX_NODE_ID;
+    }
+}
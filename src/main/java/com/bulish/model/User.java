@@ -2,19 +2,28 @@ package com.bulish.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Data
 public class User {
 
+    /**
+     * Second-level cache region, without dots: hibernate-cache.conf looks regions up as config paths.
+     */
+    public static final String CACHE_REGION = "users";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @UserIdGeneration(sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -28,4 +37,8 @@ public class User {
 
     @Column(nullable = false, updatable = false, name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,37 @@
+package com.bulish.model;
+
+import com.bulish.dto.UserOperation;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_event_outbox")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+public class UserEventOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_event_outbox_id_seq")
+    @SequenceGenerator(name = "user_event_outbox_id_seq", sequenceName = "user_event_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(nullable = false, name = "event_key")
+    private String eventKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UserOperation operation;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false, updatable = false, name = "created_at")
+    private LocalDateTime createdAt;
+}
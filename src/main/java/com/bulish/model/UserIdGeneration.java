@@ -0,0 +1,24 @@
+package com.bulish.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates the id with {@link UserIdGenerator}: from the sequence by default, or time-ordered on the
+ * application side when {@value UserIdGenerator#STRATEGY} is {@code snowflake}.
+ */
+@IdGeneratorType(UserIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface UserIdGeneration {
+
+    String sequenceName();
+
+    int allocationSize() default 50;
+}
@@ -0,0 +1,132 @@
+package com.bulish.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.jdbc.connections.spi.JdbcConnectionAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Pooled sequence generator that can hand out {@link SnowflakeIdGenerator} ids instead, chosen by the Hibernate
+ * setting {@value #STRATEGY} ({@code sequence} or {@code snowflake}). The sequence stays mapped either way, so
+ * schema validation does not change and switching back to it is a configuration change.
+ * <p>
+ * The snowflake generator starts on the first id, after the highest id of its node in the table, so a restart
+ * with the clock stepped back fails instead of repeating ids.
+ */
+@Slf4j
+public class UserIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "user.id.generator";
+    public static final String NODE_ID = "user.id.node-id";
+
+    public static final String SEQUENCE = "sequence";
+    public static final String SNOWFLAKE = "snowflake";
+
+    /**
+     * Sequence values stay far below, a snowflake id of the first hour after the epoch is already above it.
+     */
+    private static final long MIN_SNOWFLAKE_ID = 1L << 40;
+
+    private final UserIdGeneration generation;
+    private String table;
+    private String column;
+    private Integer nodeId;
+    private volatile SnowflakeIdGenerator snowflake;
+
+    public UserIdGenerator(UserIdGeneration generation, Member member, CustomIdGeneratorCreationContext context) {
+        this.generation = generation;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.setProperty(SEQUENCE_PARAM, generation.sequenceName());
+        parameters.setProperty(INCREMENT_PARAM, Integer.toString(generation.allocationSize()));
+        super.configure(type, parameters, serviceRegistry);
+        table = parameters.getProperty(PersistentIdentifierGenerator.TABLE);
+        column = parameters.getProperty(PersistentIdentifierGenerator.PK);
+
+        ConfigurationService settings = serviceRegistry.requireService(ConfigurationService.class);
+        String strategy = settings.getSetting(STRATEGY, StandardConverters.STRING, SEQUENCE).toLowerCase(Locale.ROOT);
+        switch (strategy) {
+            case SEQUENCE -> log.info("User ids from sequence {}", generation.sequenceName());
+            case SNOWFLAKE -> {
+                String node = settings.getSetting(NODE_ID, StandardConverters.STRING, "");
+                if (node.isBlank()) {
+                    // with a default node id every instance would generate the same ids
+                    throw new MappingException(NODE_ID + " must be set for " + STRATEGY + "=" + SNOWFLAKE
+                            + ", each instance needs its own node id 0.." + SnowflakeIdGenerator.MAX_NODE_ID);
+                }
+                try {
+                    nodeId = Integer.valueOf(node.trim());
+                } catch (NumberFormatException exception) {
+                    throw new MappingException(NODE_ID + " must be a number, got '" + node + "'");
+                }
+                if (nodeId < 0 || nodeId > SnowflakeIdGenerator.MAX_NODE_ID) {
+                    throw new MappingException(NODE_ID + " must be within 0.." + SnowflakeIdGenerator.MAX_NODE_ID
+                            + ", got " + nodeId);
+                }
+                log.info("User ids from snowflake generator, node id {}", nodeId);
+            }
+            default -> throw new MappingException("Unknown " + STRATEGY + " '" + strategy + "', expected "
+                    + SEQUENCE + " or " + SNOWFLAKE);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        if (nodeId == null) {
+            return super.generate(session, object);
+        }
+        SnowflakeIdGenerator generator = snowflake;
+        return (generator == null ? startSnowflake(session) : generator).nextId();
+    }
+
+    private synchronized SnowflakeIdGenerator startSnowflake(SharedSessionContractImplementor session) {
+        if (snowflake == null) {
+            long lastIssuedId = lastIssuedId(session);
+            snowflake = new SnowflakeIdGenerator(nodeId, lastIssuedId);
+            log.info("Snowflake generator started after id {}", lastIssuedId);
+        }
+        return snowflake;
+    }
+
+    /**
+     * Walks the primary key index down from the newest id, ids of the other nodes are interleaved with this one's.
+     */
+    private long lastIssuedId(SharedSessionContractImplementor session) {
+        String sql = "SELECT " + column + " FROM " + table + " WHERE " + column + " >= ? AND ((" + column + " >> "
+                + SnowflakeIdGenerator.SEQUENCE_BITS + ") & " + SnowflakeIdGenerator.MAX_NODE_ID + ") = ? ORDER BY "
+                + column + " DESC LIMIT 1";
+        JdbcConnectionAccess connectionAccess = session.getJdbcConnectionAccess();
+        try {
+            Connection connection = connectionAccess.obtainConnection();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, MIN_SNOWFLAKE_ID);
+                statement.setLong(2, nodeId);
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() ? result.getLong(1) : 0;
+                }
+            } finally {
+                connectionAccess.releaseConnection(connection);
+            }
+        } catch (SQLException exception) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(exception, "could not read the last snowflake id", sql);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bulish.repository;
+
+/**
+ * Row returned by {@link UserRepository#deleteReturning(Long)}.
+ */
+public interface DeletedUser {
+    Long getId();
+    String getEmail();
+}
@@ -0,0 +1,52 @@
+package com.bulish.repository;
+
+import com.bulish.model.UserEventOutbox;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserEventOutboxRepository extends JpaRepository<UserEventOutbox, Long> {
+
+    /**
+     * Locks the oldest rows and returns those without an older event of the same key outside of the batch.
+     * Such an event is locked by another relay or the dispatcher, or still in its grace period; the rows behind it
+     * stay in the outbox until it is sent, so events of one user are published in order.
+     */
+    @Query(value = "WITH locked AS (SELECT * FROM user_event_outbox WHERE created_at < :createdBefore " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "SELECT * FROM locked l WHERE NOT EXISTS (SELECT 1 FROM user_event_outbox older " +
+            "WHERE older.event_key = l.event_key AND older.id < l.id AND older.id NOT IN (SELECT id FROM locked)) " +
+            "ORDER BY l.id", nativeQuery = true)
+    List<UserEventOutbox> lockNextBatch(@Param("limit") int limit,
+                                        @Param("createdBefore") LocalDateTime createdBefore);
+
+    /**
+     * Locks the given rows unless an older event with the same key is still in the outbox,
+     * those are left to the relay so events of one user are published in order.
+     */
+    @Query(value = "SELECT * FROM user_event_outbox o WHERE o.id IN (:ids) AND NOT EXISTS (" +
+            "SELECT 1 FROM user_event_outbox older WHERE older.event_key = o.event_key AND older.id < o.id) " +
+            "ORDER BY o.id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<UserEventOutbox> lockDispatchable(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Copies a row Kafka will never accept to user_event_outbox_failed, the caller deletes it from the outbox.
+     * The query space keeps Hibernate from evicting the whole second-level cache for a native insert.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_event_outbox_failed"))
+    @Query(value = "INSERT INTO user_event_outbox_failed (id, topic, event_key, operation, email, created_at, error, failed_at) " +
+            "SELECT id, topic, event_key, operation, email, created_at, left(:error, 1000), now() " +
+            "FROM user_event_outbox WHERE id = :id ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int copyToFailed(@Param("id") Long id, @Param("error") String error);
+}
@@ -0,0 +1,30 @@
+package com.bulish.repository;
+
+import com.bulish.model.User;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out ids from the generator mapped on {@link User}, for inserts that bypass {@code persist}.
+ * Must be called inside a transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserIdAllocator {
+
+    private final EntityManager entityManager;
+
+    public Long nextId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory()
+                .getMappingMetamodel()
+                .getEntityDescriptor(User.class)
+                .getGenerator();
+
+        return (Long) generator.generate(session, null, null, EventType.INSERT);
+    }
+}
@@ -0,0 +1,15 @@
+package com.bulish.repository;
+
+import com.bulish.model.User;
+
+import java.util.List;
+
+public interface UserMultiGetRepository {
+
+    /**
+     * Loads users by ids in one statement, checking the second-level cache first.
+     *
+     * @return users in the order of {@code ids}, with {@code null} where no user exists
+     */
+    List<User> multiGet(List<Long> ids);
+}
@@ -0,0 +1,30 @@
+package com.bulish.repository;
+
+import com.bulish.model.User;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Hibernate multi-load instead of {@code findAllById}: on PostgreSQL the ids are bound as a single array,
+ * {@code where id = any (?)}, so every lookup size shares one statement, and the result keeps the order of the ids.
+ */
+@RequiredArgsConstructor
+class UserMultiGetRepositoryImpl implements UserMultiGetRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> multiGet(List<Long> ids) {
+        Session session = entityManager.unwrap(Session.class);
+        // without an explicit cache mode multi-load skips the second-level cache
+        return session.byMultipleIds(User.class)
+                .with(session.getCacheMode())
+                .enableSessionCheck(true)
+                .multiLoad(ids);
+    }
+}
@@ -1,12 +1,91 @@
 package com.bulish.repository;
 
 import com.bulish.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserMultiGetRepository {
+
+    /**
+     * Rows of user_collection_version: writes bump one row picked by user id, so they contend for a row
+     * lock only with writes to the same stripe.
+     */
+    int COLLECTION_VERSION_STRIPES = 16;
+
+    /**
+     * Runs as a query, so Hibernate evicts nothing for it; the new id is not in the second-level cache yet.
+     */
+    @Query(value = "INSERT INTO users (id, name, email, age, created_at, version) " +
+            "VALUES (:id, :name, :email, :age, :createdAt, 0) " +
+            "ON CONFLICT (email) DO NOTHING RETURNING *", nativeQuery = true)
+    Optional<User> insertIfEmailAbsent(@Param("id") Long id,
+                                       @Param("name") String name,
+                                       @Param("email") String email,
+                                       @Param("age") Integer age,
+                                       @Param("createdAt") LocalDateTime createdAt);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    List<User> findAllByOrderByCreatedAtAscIdAsc(Limit limit);
+
+    @Query(value = "SELECT * FROM users WHERE (created_at, id) > (:createdAt, :id) " +
+            "ORDER BY created_at, id LIMIT :limit", nativeQuery = true)
+    List<User> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                             @Param("id") Long id,
+                             @Param("limit") int limit);
+
+    /**
+     * Runs as a query, so Hibernate keeps the other users in the second-level cache, unlike a bulk JPQL update
+     * that drops the whole region, see {@link com.bulish.cache.UserSecondLevelCache}.
+     */
+    @Query(value = "UPDATE users SET name = coalesce(:name, name), email = coalesce(:email, email), " +
+            "age = coalesce(:age, age), version = version + 1 WHERE id = :id RETURNING id", nativeQuery = true)
+    Optional<Long> patch(@Param("id") Long id,
+                         @Param("name") String name,
+                         @Param("email") String email,
+                         @Param("age") Integer age);
+
+    /**
+     * Runs as a query, so Hibernate keeps the deleted user in the second-level cache, see {@link com.bulish.cache.UserSecondLevelCache}.
+     */
+    @Query(value = "DELETE FROM users WHERE id = :id RETURNING id, email", nativeQuery = true)
+    Optional<DeletedUser> deleteReturning(@Param("id") Long id);
+
+    /**
+     * Called in the transaction of every write, so the sum of all stripes grows with each committed change.
+     * The query space keeps Hibernate from evicting the whole second-level cache for a native update.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_collection_version"))
+    @Query(value = "UPDATE user_collection_version SET version = version + 1 WHERE stripe = :stripe",
+            nativeQuery = true)
+    int incrementCollectionVersion(@Param("stripe") int stripe);
+
+    @Query(value = "SELECT coalesce(sum(version), 0) FROM user_collection_version", nativeQuery = true)
+    long findCollectionVersion();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAllBy();
 }
@@ -0,0 +1,87 @@
+package com.bulish.repository;
+
+import com.bulish.dto.UserCursor;
+import com.bulish.dto.UserSearchCriteria;
+import com.bulish.model.User;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the {@code WHERE} clause of a user search from the filters that are actually set,
+ * so every predicate in the SQL is one of {@code age}, {@code name} prefix or {@code created_at}
+ * and can be served by the matching index from {@code schema.sql}.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserSearchCriteria criteria, UserCursor after) {
+        List<Specification<User>> specifications = new ArrayList<>();
+        if (criteria.getMinAge() != null) {
+            specifications.add(ageAtLeast(criteria.getMinAge()));
+        }
+        if (criteria.getMaxAge() != null) {
+            specifications.add(ageAtMost(criteria.getMaxAge()));
+        }
+        if (criteria.getNamePrefix() != null) {
+            specifications.add(nameStartsWith(criteria.getNamePrefix()));
+        }
+        if (criteria.getCreatedFrom() != null) {
+            specifications.add(createdFrom(criteria.getCreatedFrom()));
+        }
+        if (criteria.getCreatedTo() != null) {
+            specifications.add(createdBefore(criteria.getCreatedTo()));
+        }
+        if (after != null) {
+            specifications.add(after(after));
+        }
+        return Specification.allOf(specifications);
+    }
+
+    public static Specification<User> ageAtLeast(int minAge) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("age"), minAge);
+    }
+
+    public static Specification<User> ageAtMost(int maxAge) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("age"), maxAge);
+    }
+
+    /**
+     * Case-sensitive prefix match, rendered as {@code name LIKE 'prefix%'} which the
+     * {@code text_pattern_ops} index turns into a range scan.
+     */
+    public static Specification<User> nameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("name"), escapeLike(prefix) + "%", '\\');
+    }
+
+    public static Specification<User> createdFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<User> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get("createdAt"), to);
+    }
+
+    /**
+     * Keyset predicate {@code (created_at, id) > (cursor)}, written with a leading
+     * {@code created_at >= ?} so the {@code (created_at, id)} index gets a range condition.
+     */
+    public static Specification<User> after(UserCursor cursor) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            return cb.and(
+                    cb.greaterThanOrEqualTo(createdAt, cursor.getCreatedAt()),
+                    cb.or(cb.greaterThan(createdAt, cursor.getCreatedAt()),
+                            cb.greaterThan(root.get("id"), cursor.getId())));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -3,6 +3,9 @@ package com.bulish.service;
 import com.bulish.dto.UserDto;
 import com.bulish.dto.UserOperation;
 
+import java.util.List;
+
 public interface UserNotificationService {
     void sendUserEvent(UserOperation operation, UserDto userDto);
+    void sendUserEvents(UserOperation operation, List<UserDto> userDtos);
 }
\ No newline at end of file
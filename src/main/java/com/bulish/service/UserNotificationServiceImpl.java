@@ -1,25 +1,51 @@
 package com.bulish.service;
 
-import com.bulish.kafka.KafkaUserEventProducer;
 import com.bulish.dto.UserDto;
 import com.bulish.dto.UserOperation;
-import com.bulish.dto.UserOperationEvent;
+import com.bulish.kafka.UserEventDispatcher;
+import com.bulish.model.UserEventOutbox;
+import com.bulish.repository.UserEventOutboxRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
 public class UserNotificationServiceImpl implements UserNotificationService {
 
-    private final KafkaUserEventProducer userProducer;
+    private final UserEventOutboxRepository outboxRepository;
+    private final ObjectProvider<UserEventDispatcher> eventDispatcher;
     private static final String USER_EVENTS_TOPIC = "user-events";
+
     @Override
     public void sendUserEvent(UserOperation operation, UserDto userDto) {
-        UserOperationEvent event = UserOperationEvent.builder()
-                .userOperation(operation)
+        UserEventOutbox event = outboxRepository.save(toOutboxEvent(operation, userDto, LocalDateTime.now()));
+        eventDispatcher.ifAvailable(dispatcher -> dispatcher.dispatchAfterCommit(List.of(event.getId())));
+    }
+
+    @Override
+    public void sendUserEvents(UserOperation operation, List<UserDto> userDtos) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<UserEventOutbox> events = outboxRepository.saveAll(userDtos.stream()
+                .map(userDto -> toOutboxEvent(operation, userDto, createdAt))
+                .toList());
+        List<Long> ids = events.stream().map(UserEventOutbox::getId).toList();
+        eventDispatcher.ifAvailable(dispatcher -> dispatcher.dispatchAfterCommit(ids));
+    }
+
+    private UserEventOutbox toOutboxEvent(UserOperation operation, UserDto userDto, LocalDateTime createdAt) {
+        return UserEventOutbox.builder()
+                .topic(USER_EVENTS_TOPIC)
+                .eventKey(userDto.getId().toString())
+                .operation(operation)
                 .email(userDto.getEmail())
+                .createdAt(createdAt)
                 .build();
-
-        userProducer.sendEvent(USER_EVENTS_TOPIC, userDto.getId().toString(), event);
     }
 }
@@ -1,12 +1,24 @@
 package com.bulish.service;
 
 import com.bulish.dto.UserDto;
+import com.bulish.dto.UserLookup;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.dto.UserSearchCriteria;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserDto saveNewUser(UserDto user);
+    List<UserDto> saveNewUsers(List<UserDto> users);
     UserDto findById(Long id);
+    UserLookup findByIds(List<Long> ids);
     List<UserDto> findAll();
+    UserPage findPage(String cursor, int size);
+    UserPage search(UserSearchCriteria criteria, String cursor, int size);
+    long findCollectionVersion();
+    void exportAll(Consumer<UserDto> consumer);
     void update(Long userId, UserDto user);
+    void patch(Long userId, UserPatchDto patch);
     void deleteById(Long id);
 }
\ No newline at end of file
@@ -1,66 +1,177 @@
 package com.bulish.service;
 
+import com.bulish.cache.UserCache;
+import com.bulish.cache.UserSecondLevelCache;
+import com.bulish.config.DataSourceRouting;
+import com.bulish.config.RequestDeadline;
+import com.bulish.dto.UserCursor;
+import com.bulish.dto.UserLookup;
 import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.dto.UserSearchCriteria;
 import com.bulish.repository.UserRepository;
 import com.bulish.dto.UserDto;
 import com.bulish.exceptions.EmailAlreadyExistsException;
 import com.bulish.exceptions.UserNotFoundException;
 import com.bulish.mapper.UserMapper;
+import com.bulish.repository.DeletedUser;
+import com.bulish.repository.UserIdAllocator;
+import com.bulish.repository.UserSpecifications;
 import com.bulish.model.User;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
+@Timed("user.service")
 public class UserServiceImpl implements UserService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Sort KEYSET_ORDER = Sort.by("createdAt", "id");
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final UserNotificationService notificationService;
+    private final EntityManager entityManager;
+    private final UserCache userCache;
+    private final UserSecondLevelCache secondLevelCache;
+    private final UserIdAllocator userIdAllocator;
 
     @Override
     @Transactional
     public UserDto saveNewUser(UserDto userDto) {
         log.info("saveNewUser triggered...");
 
-        userRepository.findByEmail(userDto.getEmail()).ifPresent(
-                user -> {
+        User user = userRepository.insertIfEmailAbsent(userIdAllocator.nextId(), userDto.getName(),
+                        userDto.getEmail(), userDto.getAge(), LocalDateTime.now())
+                .orElseThrow(() -> {
                     log.error("duplicate email {}", userDto.getEmail());
-                    throw new EmailAlreadyExistsException("Email " + userDto.getEmail() + " already in use");
+                    return new EmailAlreadyExistsException("Email " + userDto.getEmail() + " already in use");
                 });
-
-        User user = userMapper.toEntity(userDto);
-        user.setCreatedAt(LocalDateTime.now());
         log.debug("new user created {}", user);
 
-        UserDto savedUser = userMapper.toDto(userRepository.save(user));
+        UserDto savedUser = userMapper.toDto(user);
         notificationService.sendUserEvent(UserOperation.CREATE, savedUser);
+        userCache.invalidateAfterCommit(savedUser.getId());
+        markCollectionChanged(savedUser.getId());
 
         return savedUser;
     }
 
     @Override
+    @Transactional
+    public List<UserDto> saveNewUsers(List<UserDto> userDtos) {
+        log.info("saveNewUsers triggered...");
+
+        Set<String> emails = new HashSet<>();
+        userDtos.forEach(userDto -> {
+            if (!emails.add(userDto.getEmail())) {
+                log.error("duplicate email {} in batch", userDto.getEmail());
+                throw new EmailAlreadyExistsException("Email " + userDto.getEmail() + " is duplicated in batch");
+            }
+        });
+
+        Set<String> existingEmails = userRepository.findExistingEmails(emails);
+        if (!existingEmails.isEmpty()) {
+            log.error("duplicate emails {}", existingEmails);
+            throw new EmailAlreadyExistsException("Emails " + existingEmails + " already in use");
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<User> users = userDtos.stream()
+                .map(userDto -> {
+                    User user = userMapper.toEntity(userDto);
+                    user.setId(null);
+                    user.setCreatedAt(createdAt);
+                    return user;
+                })
+                .toList();
+        log.debug("new users created {}", users.size());
+
+        List<UserDto> savedUsers = userRepository.saveAll(users).stream().map(userMapper::toDto).toList();
+        notificationService.sendUserEvents(UserOperation.CREATE, savedUsers);
+        userCache.invalidateAfterCommit(savedUsers.stream().map(UserDto::getId).toList());
+        if (!savedUsers.isEmpty()) {
+            markCollectionChanged(savedUsers.getFirst().getId());
+        }
+
+        return savedUsers;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserDto findById(Long id) {
         log.info("findById triggered...");
 
-        return userRepository.findById(id)
+        return userCache.get(id, this::loadById)
+                .orElseThrow(() -> {
+                    log.error("User not found with id {}", id);
+                    return new UserNotFoundException("User not found with id: " + id);
+                });
+    }
+
+    private Optional<UserDto> loadById(Long id) {
+        // cache misses read the primary, a lagging replica would otherwise keep a stale user cached for the ttl;
+        // the load is shared with concurrent readers, so it does not fail with the deadline of the first one
+        return RequestDeadline.detached(() -> DataSourceRouting.onPrimary(() -> userRepository.findById(id)))
                 .map(user -> {
                     log.debug("Found user: {}", user);
                     return userMapper.toDto(user);
-                })
-                .orElseThrow(() -> {
-                    log.error("User not found in db with id {}", id);
-                    return new UserNotFoundException("User not found with id: " + id);
                 });
     }
 
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserLookup findByIds(List<Long> ids) {
+        log.info("findByIds triggered...");
+
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Map<Long, Optional<UserDto>> users = userCache.getAll(distinctIds, this::loadByIds);
+        List<UserDto> found = new ArrayList<>(distinctIds.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            users.get(id).ifPresentOrElse(found::add, () -> missingIds.add(id));
+        }
+        log.debug("Found {} users, missing ids {}", found.size(), missingIds);
+
+        return new UserLookup(found, missingIds);
+    }
+
+    private Map<Long, Optional<UserDto>> loadByIds(Set<Long> ids) {
+        List<Long> idList = List.copyOf(ids);
+        // primary and without the deadline for the same reasons as loadById
+        List<User> users = RequestDeadline.detached(() ->
+                DataSourceRouting.onPrimary(() -> userRepository.multiGet(idList)));
+        Map<Long, Optional<UserDto>> loaded = new HashMap<>();
+        for (int i = 0; i < idList.size(); i++) {
+            loaded.put(idList.get(i), Optional.ofNullable(users.get(i)).map(userMapper::toDto));
+        }
+        return loaded;
+    }
+
     @Transactional(readOnly = true)
     @Override
     public List<UserDto> findAll() {
@@ -71,6 +182,65 @@ public class UserServiceImpl implements UserService {
         return users.stream().map(userMapper::toDto).toList();
     }
 
+    @Override
+    public UserPage findPage(String cursor, int size) {
+        log.info("findPage triggered...");
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+
+        List<User> users = cursor == null
+                ? userRepository.findAllByOrderByCreatedAtAscIdAsc(Limit.of(pageSize + 1))
+                : findPageAfter(UserCursor.decode(cursor), pageSize + 1);
+        log.debug("Found users page size {}", users.size());
+
+        return toPage(users, pageSize);
+    }
+
+    @Override
+    public UserPage search(UserSearchCriteria criteria, String cursor, int size) {
+        log.info("search triggered...");
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+
+        List<User> users = userRepository.findBy(
+                UserSpecifications.matching(criteria, cursor == null ? null : UserCursor.decode(cursor)),
+                query -> query.sortBy(KEYSET_ORDER).limit(pageSize + 1).all());
+        log.debug("Found users search page size {}", users.size());
+
+        return toPage(users, pageSize);
+    }
+
+    @Override
+    public long findCollectionVersion() {
+        log.info("findCollectionVersion triggered...");
+        return userRepository.findCollectionVersion();
+    }
+
+    @Override
+    public void exportAll(Consumer<UserDto> consumer) {
+        log.info("exportAll triggered...");
+
+        try (Stream<User> users = userRepository.streamAllBy()) {
+            users.forEach(user -> {
+                consumer.accept(userMapper.toDto(user));
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    private void markCollectionChanged(Long id) {
+        userRepository.incrementCollectionVersion(Math.floorMod(id, UserRepository.COLLECTION_VERSION_STRIPES));
+    }
+
+    private List<User> findPageAfter(UserCursor cursor, int limit) {
+        return userRepository.findPageAfter(cursor.getCreatedAt(), cursor.getId(), limit);
+    }
+
+    private UserPage toPage(List<User> users, int pageSize) {
+        List<UserDto> page = users.stream().limit(pageSize).map(userMapper::toDto).toList();
+        String nextCursor = users.size() > pageSize ? UserCursor.of(page.getLast()).encode() : null;
+
+        return new UserPage(page, nextCursor);
+    }
+
     @Transactional
     @Override
     public void update(Long id, UserDto userDto) {
@@ -80,6 +250,8 @@ public class UserServiceImpl implements UserService {
                 user -> {
                     log.debug("Found user: {}", user);
                     userMapper.updateEntityFromDto(userDto, user);
+                    userCache.invalidateAfterCommit(id);
+                    markCollectionChanged(id);
                 },
                 () -> {
                     log.error("User not found in db with id {}", id);
@@ -87,20 +259,36 @@ public class UserServiceImpl implements UserService {
                 });
     }
 
+    @Transactional
+    @Override
+    public void patch(Long id, UserPatchDto patch) {
+        log.info("patch triggered...");
+
+        userRepository.patch(id, patch.getName(), patch.getEmail(), patch.getAge())
+                .orElseThrow(() -> {
+                    log.error("User not found in db with id {}", id);
+                    return new UserNotFoundException("User not found with id: " + id);
+                });
+        userCache.invalidateAfterCommit(id);
+        secondLevelCache.evictAfterCommit(id);
+        markCollectionChanged(id);
+    }
+
     @Transactional
     @Override
     public void deleteById(Long id) {
         log.info("deleteById triggered...");
-        userRepository.findById(id).ifPresentOrElse(
-                user -> {
-                    log.debug("found user {}", user);
-                    userRepository.deleteById(id);
-                    notificationService.sendUserEvent(UserOperation.DELETE, userMapper.toDto(user));
-                },
-                () -> {
+
+        DeletedUser deletedUser = userRepository.deleteReturning(id)
+                .orElseThrow(() -> {
                     log.error("User not found in db with id {}", id);
-                    throw new UserNotFoundException("User with id " + id + " not found in db");
-                }
-        );
+                    return new UserNotFoundException("User with id " + id + " not found in db");
+                });
+        log.debug("deleted user {}", deletedUser.getId());
+
+        notificationService.sendUserEvent(UserOperation.DELETE, userMapper.toDeletedUserDto(deletedUser));
+        userCache.invalidateAfterCommit(id);
+        secondLevelCache.evictAfterCommit(id);
+        markCollectionChanged(id);
     }
 }
@@ -3,5 +3,50 @@ CREATE TABLE IF NOT EXISTS users (
     name VARCHAR(255) NOT NULL,
     email VARCHAR(255) UNIQUE NOT NULL,
     age INTEGER NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+
+-- ETag of GET /users: every write increments one stripe (UserRepository.COLLECTION_VERSION_STRIPES)
+CREATE TABLE IF NOT EXISTS user_collection_version (
+    stripe SMALLINT PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO user_collection_version (stripe) SELECT generate_series(0, 15) ON CONFLICT DO NOTHING;
+
+CREATE INDEX IF NOT EXISTS idx_users_created_at_id ON users (created_at, id);
+
+-- /users/search: age range and name prefix; created_at windows reuse idx_users_created_at_id
+CREATE INDEX IF NOT EXISTS idx_users_age ON users (age);
+
+CREATE INDEX IF NOT EXISTS idx_users_name_prefix ON users (name text_pattern_ops);
+
+CREATE SEQUENCE IF NOT EXISTS user_event_outbox_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS user_event_outbox (
+    id BIGINT PRIMARY KEY DEFAULT nextval('user_event_outbox_id_seq'),
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255) NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    email VARCHAR(255) NOT NULL,
     created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_event_outbox_key_id ON user_event_outbox (event_key, id);
+
+-- outbox events Kafka rejected for good (codec error, record too large, ...), moved aside so they do not block the outbox
+CREATE TABLE IF NOT EXISTS user_event_outbox_failed (
+    id BIGINT PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255) NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    error VARCHAR(1000) NOT NULL,
+    failed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
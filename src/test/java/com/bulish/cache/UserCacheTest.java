@@ -0,0 +1,83 @@
+package com.bulish.cache;
+
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private static final int READERS = 50;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserCache userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ofSeconds(5), meterRegistry);
+
+    @Test
+    @DisplayName("get - concurrent reads of the same id share one load")
+    void concurrentGetsCoalesce() throws Exception {
+        UserDto user = TestUserFactory.createUserDto(1L);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, Optional<UserDto>> loader = id -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+            return Optional.of(user);
+        };
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<UserDto>>> reads = new ArrayList<>();
+            reads.add(executor.submit(() -> userCache.get(1L, loader)));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < READERS; i++) {
+                reads.add(executor.submit(() -> userCache.get(1L, loader)));
+            }
+            while (coalesced() < READERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Optional<UserDto>> read : reads) {
+                assertEquals(Optional.of(user), read.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(READERS - 1, coalesced());
+    }
+
+    @Test
+    @DisplayName("get - failed load is rethrown and not cached")
+    void failedLoadIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> userCache.get(1L, id -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+
+        assertEquals(Optional.empty(), userCache.get(1L, id -> Optional.empty()));
+        assertEquals(0, coalesced());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("cache.coalesced").tag("cache", "users").counter().count();
+    }
+}
@@ -0,0 +1,159 @@
+package com.bulish.cache;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.model.User;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserSecondLevelCacheIT extends PostgresIT {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("second-level cache - findById is served from the cache")
+    void findByIdHitsCache() {
+        UserDto user = userService.saveNewUser(TestUserFactory.createUserDto());
+
+        userRepository.findById(user.getId());
+        userRepository.findById(user.getId());
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 1);
+        assertTrue(meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("region", User.CACHE_REGION)
+                .tag("result", "hit")
+                .functionCounter()
+                .count() >= 1);
+    }
+
+    @Test
+    @DisplayName("second-level cache - multiGet serves cached users and loads the rest in one statement")
+    void multiGetHitsCache() {
+        UserDto first = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("first@mail.com"));
+        UserDto second = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("second@mail.com"));
+        UserDto third = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("third@mail.com"));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        userRepository.findById(second.getId());
+        statistics.clear();
+
+        List<User> users = userRepository.multiGet(List.of(third.getId(), 999L, second.getId(), first.getId()));
+
+        assertEquals(Arrays.asList(third.getId(), null, second.getId(), first.getId()),
+                users.stream().map(user -> user == null ? null : user.getId()).toList());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("second-level cache - writes to other users keep a cached user")
+    void otherWritesKeepCachedUser() {
+        UserDto cached = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("cached@mail.com"));
+        userRepository.findById(cached.getId());
+
+        UserDto other = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("other@mail.com"));
+        userService.deleteById(other.getId());
+        statistics.clear();
+
+        userRepository.findById(cached.getId());
+
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("second-level cache - patch of another user keeps a cached user")
+    void patchKeepsOtherCachedUsers() {
+        UserDto cached = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("cached@mail.com"));
+        UserDto patched = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("patched@mail.com"));
+        userRepository.findById(cached.getId());
+        userRepository.findById(patched.getId());
+
+        userService.patch(patched.getId(), UserPatchDto.builder().age(50).build());
+        statistics.clear();
+
+        userRepository.findById(cached.getId());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+
+        assertEquals(50, userRepository.findById(patched.getId()).map(User::getAge).orElseThrow());
+        assertEquals(1, statistics.getSecondLevelCacheMissCount());
+    }
+
+    @Test
+    @DisplayName("second-level cache - update and patch are visible to cached reads")
+    void updateAndPatchAreVisible() {
+        UserDto user = userService.saveNewUser(TestUserFactory.createUserDto());
+        userRepository.findById(user.getId());
+
+        userService.update(user.getId(), TestUserFactory.createUserDtoWithParam("Updated", "updated@mail.com", 40));
+
+        assertEquals("Updated", userRepository.findById(user.getId()).map(User::getName).orElseThrow());
+        assertEquals("updated@mail.com", userRepository.findById(user.getId()).map(User::getEmail).orElseThrow());
+
+        userService.patch(user.getId(), UserPatchDto.builder().age(50).build());
+
+        assertEquals(50, userRepository.findById(user.getId()).map(User::getAge).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("second-level cache - deleted user is not served from the cache")
+    void deleteEvicts() {
+        UserDto user = userService.saveNewUser(TestUserFactory.createUserDto());
+        userRepository.findById(user.getId());
+
+        userService.deleteById(user.getId());
+
+        assertEquals(Optional.empty(), userRepository.findById(user.getId()));
+    }
+}
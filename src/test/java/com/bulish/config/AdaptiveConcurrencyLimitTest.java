@@ -0,0 +1,120 @@
+package com.bulish.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    @DisplayName("limit - requests past the limit are rejected until a slot is released")
+    void rejectsPastLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 1.5, 0.2);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release();
+
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInflight());
+        assertEquals(1, limit.getRejected());
+    }
+
+    @Test
+    @DisplayName("limit - grows while latency is flat and the limit is in use")
+    void growsWithFlatLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 4, 100, 1.5, 0.2);
+
+        saturate(limit, FAST, 20);
+
+        assertTrue(limit.getLimit() > 20, "limit " + limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("limit - shrinks when latency rises and recovers once it is the new normal")
+    void shrinksWithRisingLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 100, 1.5, 0.2);
+        saturate(limit, FAST, 5);
+        int before = limit.getLimit();
+
+        saturate(limit, SLOW, 3);
+        int after = limit.getLimit();
+        saturate(limit, SLOW, 100);
+
+        assertTrue(after < before / 2, before + " -> " + after);
+        assertTrue(after >= 4, "limit " + after);
+        assertTrue(limit.getLimit() > after, after + " -> " + limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("limit - does not go below the minimum")
+    void keepsMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(5, 4, 100, 1.5, 0.2);
+        saturate(limit, FAST, 1);
+
+        saturate(limit, SLOW * 100, 10);
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("limit - does not grow when most of it is unused")
+    void idleLimitIsKept() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 4, 100, 1.5, 0.2);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("limit - concurrent callers never hold more slots than the maximum")
+    void concurrentCallersStayWithinLimit() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 4, 16, 1.5, 0.2);
+        AtomicInteger maxInflight = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int task = 0; task < 8; task++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (limit.tryAcquire()) {
+                            maxInflight.accumulateAndGet(limit.getInflight(), Math::max);
+                            limit.release(FAST);
+                        }
+                    }
+                });
+            }
+        }
+
+        assertEquals(0, limit.getInflight());
+        assertTrue(maxInflight.get() <= 16, "max inflight " + maxInflight.get());
+    }
+
+    /**
+     * Fills every slot and releases them all with the given latency, {@code rounds} times.
+     */
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
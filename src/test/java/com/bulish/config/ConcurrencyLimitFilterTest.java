@@ -0,0 +1,78 @@
+package com.bulish.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final AdaptiveConcurrencyLimit readLimit = new AdaptiveConcurrencyLimit(1, 1, 1, 1.5, 0.2);
+    private final AdaptiveConcurrencyLimit writeLimit = new AdaptiveConcurrencyLimit(1, 1, 1, 1.5, 0.2);
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(readLimit, writeLimit,
+            Duration.ofSeconds(2), new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    @Test
+    @DisplayName("filter - request past the limit gets 503 with Retry-After")
+    void rejectsPastLimit() throws Exception {
+        assertTrue(writeLimit.tryAcquire());
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = perform("POST", "/users", chain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains("Too many concurrent write requests"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    @DisplayName("filter - reads and writes have separate limits")
+    void separateLimits() throws Exception {
+        assertTrue(writeLimit.tryAcquire());
+
+        assertEquals(200, perform("GET", "/users/1", new MockFilterChain()).getStatus());
+        assertEquals(200, perform("POST", "/users/lookup", new MockFilterChain()).getStatus());
+        assertEquals(503, perform("DELETE", "/users/1", new MockFilterChain()).getStatus());
+
+        assertTrue(readLimit.tryAcquire());
+        assertEquals(503, perform("POST", "/users/lookup", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    @DisplayName("filter - slot is released after the request, also when it fails")
+    void releasesSlot() throws Exception {
+        perform("PUT", "/users/1", new MockFilterChain());
+        assertEquals(0, writeLimit.getInflight());
+
+        assertThrows(ServletException.class, () -> perform("PUT", "/users/1", (request, response) -> {
+            throw new ServletException("failed");
+        }));
+        assertEquals(0, writeLimit.getInflight());
+    }
+
+    @Test
+    @DisplayName("filter - endpoints outside /users are not limited")
+    void otherPathsNotLimited() throws Exception {
+        assertTrue(readLimit.tryAcquire());
+
+        assertEquals(200, perform("GET", "/actuator/health", new MockFilterChain()).getStatus());
+        assertEquals(503, perform("GET", "/users", new MockFilterChain()).getStatus());
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, jakarta.servlet.FilterChain chain)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, uri), response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,101 @@
+package com.bulish.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private final HikariDataSource firstPool = mock(HikariDataSource.class);
+    private final HikariDataSource secondPool = mock(HikariDataSource.class);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenAnswer(invocation -> connection());
+        when(firstReplica.getConnection()).thenAnswer(invocation -> connection());
+        when(secondReplica.getConnection()).thenAnswer(invocation -> connection());
+    }
+
+    @Test
+    @DisplayName("routing - read-only connections use a replica, others the primary")
+    void routesByReadOnlyFlag() throws SQLException {
+        ReadReplicaRoutingDataSource routing = routing(ReadReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        // the first connection reads the default auto-commit and isolation from the primary
+        routing.getConnection().close();
+        clearInvocations(primary);
+
+        try (Connection connection = routing.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+        try (Connection connection = routing.getConnection()) {
+            connection.createStatement();
+        }
+
+        verify(firstReplica).getConnection();
+        verify(primary).getConnection();
+    }
+
+    @Test
+    @DisplayName("routing - round robin takes replicas in turn")
+    void roundRobin() {
+        ReadReplicaRoutingDataSource routing = routing(ReadReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        assertSame(firstReplica, routing.selectReplica());
+        assertSame(secondReplica, routing.selectReplica());
+        assertSame(firstReplica, routing.selectReplica());
+    }
+
+    @Test
+    @DisplayName("routing - least loaded skips the busy replica")
+    void leastLoaded() {
+        givenLoad(firstPool, 5, 2);
+        givenLoad(secondPool, 1, 0);
+        ReadReplicaRoutingDataSource routing = routing(ReadReplicaRoutingDataSource.Selection.LEAST_LOADED);
+
+        assertSame(secondReplica, routing.selectReplica());
+        assertSame(secondReplica, routing.selectReplica());
+    }
+
+    @Test
+    @DisplayName("routing - pinned thread reads the primary")
+    void pinnedToPrimary() {
+        ReadReplicaRoutingDataSource routing = routing(ReadReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        assertSame(primary, DataSourceRouting.onPrimary(routing::selectReplica));
+        assertFalse(DataSourceRouting.isPrimaryRequired());
+        assertSame(firstReplica, routing.selectReplica());
+    }
+
+    private ReadReplicaRoutingDataSource routing(ReadReplicaRoutingDataSource.Selection selection) {
+        return new ReadReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica),
+                List.of(firstPool, secondPool), selection);
+    }
+
+    private static void givenLoad(HikariDataSource pool, int active, int awaiting) {
+        HikariPoolMXBean pooling = mock(HikariPoolMXBean.class);
+        when(pooling.getActiveConnections()).thenReturn(active);
+        when(pooling.getThreadsAwaitingConnection()).thenReturn(awaiting);
+        when(pool.getHikariPoolMXBean()).thenReturn(pooling);
+    }
+
+    private static Connection connection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        return connection;
+    }
+}
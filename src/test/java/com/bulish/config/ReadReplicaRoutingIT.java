@@ -0,0 +1,142 @@
+package com.bulish.config;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.model.User;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two independent databases stand in for a primary and its replica. Nothing replicates between them,
+ * so every read shows which of the two it was routed to.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingIT extends PostgresIT {
+
+    private static final long REPLICA_USER_ID = 1_000_000L;
+
+    @Container
+    static PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("replicadb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static JdbcTemplate replicaJdbcTemplate;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("datasource.replicas.urls", replicaContainer::getJdbcUrl);
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+    }
+
+    @BeforeAll
+    static void createReplicaSchema() {
+        DriverManagerDataSource replica = new DriverManagerDataSource(replicaContainer.getJdbcUrl(),
+                replicaContainer.getUsername(), replicaContainer.getPassword());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica);
+        replicaJdbcTemplate = new JdbcTemplate(replica);
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+        replicaJdbcTemplate.update("DELETE FROM users");
+        replicaJdbcTemplate.update("INSERT INTO users (id, name, email, age, created_at, version) " +
+                "VALUES (?, 'Replica', 'replica@mail.com', 30, ?, 0)", REPLICA_USER_ID, LocalDateTime.now());
+    }
+
+    @Test
+    @DisplayName("routing - writes go to the primary and read-only transactions to the replica")
+    void routesReadsToReplica() {
+        UserDto saved = userService.saveNewUser(TestUserFactory.createUserDto());
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class));
+        assertEquals(List.of("Replica"), userService.findAll().stream().map(UserDto::getName).toList());
+        assertEquals(saved.getEmail(), userService.findById(saved.getId()).getEmail());
+    }
+
+    @Test
+    @DisplayName("routing - users read from the replica are not put into the second-level cache")
+    void replicaReadsSkipSecondLevelCache() {
+        userService.findAll();
+        assertFalse(entityManagerFactory.getCache().contains(User.class, REPLICA_USER_ID));
+
+        UserDto saved = userService.saveNewUser(TestUserFactory.createUserDto());
+        entityManagerFactory.getCache().evictAll();
+        userService.findById(saved.getId());
+        assertTrue(entityManagerFactory.getCache().contains(User.class, saved.getId()));
+    }
+
+    @Test
+    @DisplayName("routing - a client reads its own write from the primary within the window")
+    void readYourWrites() throws Exception {
+        MvcResult created = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Test\",\"email\":\"test@mail.com\",\"age\":22}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie lastWrite = created.getResponse().getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+        assertNotNull(lastWrite);
+
+        mockMvc.perform(get("/users").param("size", "10").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDtoList[*].name", contains("Test")));
+        mockMvc.perform(get("/users").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userDtoList[*].name", contains("Replica")));
+    }
+}
@@ -0,0 +1,73 @@
+package com.bulish.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(2));
+
+    @Test
+    @DisplayName("filter - write sets the last write cookie")
+    void writeSetsCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/users"), response, new MockFilterChain());
+
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.startsWith(ReadYourWritesFilter.LAST_WRITE_COOKIE + "="));
+        assertTrue(cookie.contains("HttpOnly"));
+    }
+
+    @Test
+    @DisplayName("filter - lookup by post is a read")
+    void lookupIsRead() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users/lookup");
+        request.setCookies(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis())));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, response, (req, res) -> primary.set(DataSourceRouting.isPrimaryRequired()));
+
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+        assertTrue(primary.get());
+    }
+
+    @Test
+    @DisplayName("filter - read after a recent write is pinned to the primary")
+    void recentWriteReadsPrimary() throws Exception {
+        assertTrue(readsPrimary(System.currentTimeMillis()));
+        assertFalse(DataSourceRouting.isPrimaryRequired());
+    }
+
+    @Test
+    @DisplayName("filter - read after the window or without a cookie uses replicas")
+    void oldWriteReadsReplica() throws Exception {
+        assertFalse(readsPrimary(System.currentTimeMillis() - 2_000));
+        assertFalse(readsPrimary(null));
+    }
+
+    private boolean readsPrimary(Long lastWrite) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        if (lastWrite != null) {
+            request.setCookies(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE, lastWrite.toString()));
+        }
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> primary.set(DataSourceRouting.isPrimaryRequired()));
+
+        return primary.get();
+    }
+}
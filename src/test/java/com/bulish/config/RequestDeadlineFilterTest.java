@@ -0,0 +1,65 @@
+package com.bulish.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDeadlineFilterTest {
+
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(Duration.ofSeconds(2), Duration.ofSeconds(5));
+
+    @Test
+    @DisplayName("filter - client timeout shorter than the default is used")
+    void clientTimeout() throws Exception {
+        long remaining = remainingMillis(request("GET", "/users", "200"));
+
+        assertTrue(remaining > 0 && remaining <= 200, "remaining " + remaining);
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    @Test
+    @DisplayName("filter - default of reads or writes caps the client timeout and applies without it")
+    void endpointDefaults() throws Exception {
+        assertBetween(1_000, 2_000, remainingMillis(request("GET", "/users/1", "60000")));
+        assertBetween(1_000, 2_000, remainingMillis(request("POST", "/users/lookup", null)));
+        assertBetween(4_000, 5_000, remainingMillis(request("POST", "/users", "invalid")));
+    }
+
+    @Test
+    @DisplayName("filter - no deadline outside /users or with a zero default")
+    void noDeadline() throws Exception {
+        assertEquals(Long.MAX_VALUE, remainingMillis(request("GET", "/actuator/health", "100")));
+
+        RequestDeadlineFilter unbounded = new RequestDeadlineFilter(Duration.ZERO, Duration.ZERO);
+        AtomicLong remaining = new AtomicLong();
+        unbounded.doFilter(request("GET", "/users", null), new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingNanos()));
+        assertEquals(Long.MAX_VALUE, remaining.get());
+    }
+
+    private long remainingMillis(MockHttpServletRequest request) throws Exception {
+        AtomicLong remaining = new AtomicLong();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingNanos()));
+        return remaining.get() == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(remaining.get());
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String timeout) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (timeout != null) {
+            request.addHeader(RequestDeadlineFilter.TIMEOUT_HEADER, timeout);
+        }
+        return request;
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " not in [" + min + ", " + max + "]");
+    }
+}
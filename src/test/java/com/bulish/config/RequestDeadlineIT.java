@@ -0,0 +1,119 @@
+package com.bulish.config;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.exceptions.DeadlineExceededException;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RequestDeadlineIT extends PostgresIT {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("deadline - transaction statements are capped to the time left")
+    void statementTimeoutFollowsDeadline() {
+        Long previous = RequestDeadline.start(Duration.ofSeconds(2));
+        String timeout;
+        try {
+            timeout = transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SHOW statement_timeout", String.class));
+        } finally {
+            RequestDeadline.restore(previous);
+        }
+
+        assertTrue(timeout.endsWith("ms") || timeout.equals("2s"), timeout);
+        assertNotEquals("0", timeout);
+        assertEquals("0", transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SHOW statement_timeout", String.class)));
+    }
+
+    @Test
+    @DisplayName("deadline - query blocked past the client timeout is canceled with 504")
+    void blockedQueryIsCanceled() throws Exception {
+        userService.saveNewUser(TestUserFactory.createUserDto());
+
+        try (Connection locker = dataSource.getConnection(); Statement lock = locker.createStatement()) {
+            locker.setAutoCommit(false);
+            lock.execute("LOCK TABLE users IN ACCESS EXCLUSIVE MODE");
+            long start = System.nanoTime();
+
+            mockMvc.perform(get("/users").header(RequestDeadlineFilter.TIMEOUT_HEADER, "300"))
+                    .andExpect(status().isGatewayTimeout())
+                    .andExpect(jsonPath("$.title").value("Deadline exceeded"));
+
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(3)) < 0);
+            locker.rollback();
+        }
+    }
+
+    @Test
+    @DisplayName("deadline - no transaction is started after the deadline, shared cache loads ignore it")
+    void expiredDeadline() {
+        UserDto user = userService.saveNewUser(TestUserFactory.createUserDto());
+
+        Long previous = RequestDeadline.start(Duration.ZERO);
+        try {
+            assertThrows(DeadlineExceededException.class, () -> userService.findAll());
+            assertEquals(user.getEmail(), userService.findById(user.getId()).getEmail());
+        } finally {
+            RequestDeadline.restore(previous);
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package com.bulish.controller;
 
 import com.bulish.TestUserFactory;
+import com.bulish.dto.UserBatchDto;
 import com.bulish.dto.UserDto;
+import com.bulish.dto.UserLookup;
+import com.bulish.dto.UserLookupDto;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.dto.UserSearchCriteria;
+import com.bulish.exceptions.DeadlineExceededException;
+import com.bulish.exceptions.InvalidCursorException;
+import com.bulish.mapper.UserNdjsonWriter;
+import com.bulish.model.User;
 import com.bulish.exceptions.UserNotFoundException;
 import com.bulish.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,15 +20,25 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -33,12 +53,18 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @SpyBean
+    private UserNdjsonWriter ndjsonWriter;
+
     private final String MAIN_PATH = "/users";
     private final String MAIN_PATH_ID = "/users/{id}";
+    private final String USERS_LIST_PATH = "$._embedded.userDtoList";
 
     private final String USER_NOT_FOUND_MESSAGE = "User not found with id: ";
     private final String VALIDATION_TITLE = "Validation failed";
 
+    private final long COLLECTION_VERSION = 7;
+
     @Test
     @DisplayName("POST /users - ok")
     void createOk() throws Exception {
@@ -100,6 +126,86 @@ class UserControllerTest {
         verify(userService, never()).saveNewUser(any());
     }
 
+    @Test
+    @DisplayName("POST /users/batch - ok")
+    void createBatchOk() throws Exception {
+        List<UserDto> users = List.of(
+                TestUserFactory.createUserDto(),
+                TestUserFactory.createUserDtoWithEmail("secondUser@yandex.com"));
+        when(userService.saveNewUsers(users)).thenReturn(users);
+
+        mockMvc.perform(post(MAIN_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserBatchDto(users))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath(USERS_LIST_PATH + ".size()").value(users.size()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1].email").value(users.getLast().getEmail()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.self.href").exists())
+                .andExpect(jsonPath("$._links.users.href").value("http://localhost/users"));
+
+        verify(userService, times(1)).saveNewUsers(users);
+    }
+
+    @Test
+    @DisplayName("POST /users/batch - invalid user in batch")
+    void createBatchInvalidUser() throws Exception {
+        List<UserDto> users = List.of(
+                TestUserFactory.createUserDto(),
+                TestUserFactory.createUserDtoWithEmail("invalid"));
+
+        mockMvc.perform(post(MAIN_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserBatchDto(users))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.title").value(VALIDATION_TITLE))
+                .andExpect(jsonPath("$.fieldErrors['users[1].email']").exists());
+
+        verify(userService, never()).saveNewUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /users/batch - empty batch")
+    void createBatchEmpty() throws Exception {
+        mockMvc.perform(post(MAIN_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserBatchDto(List.of()))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.fieldErrors.users").exists());
+
+        verify(userService, never()).saveNewUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /users/lookup - found users and missing ids")
+    void lookupOk() throws Exception {
+        List<UserDto> users = List.of(
+                TestUserFactory.createUserDto(2L),
+                TestUserFactory.createUserDto(1L));
+        when(userService.findByIds(List.of(2L, 3L, 1L))).thenReturn(new UserLookup(users, List.of(3L)));
+
+        mockMvc.perform(post(MAIN_PATH + "/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserLookupDto(List.of(2L, 3L, 1L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(USERS_LIST_PATH + "[0].id").value(2))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1].id").value(1))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.self.href").value("http://localhost/users/1"))
+                .andExpect(jsonPath("$.missingIds").value(3))
+                .andExpect(jsonPath("$._links.users.href").value("http://localhost/users"));
+    }
+
+    @Test
+    @DisplayName("POST /users/lookup - no ids")
+    void lookupEmpty() throws Exception {
+        mockMvc.perform(post(MAIN_PATH + "/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserLookupDto(List.of()))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.fieldErrors.ids").exists());
+
+        verify(userService, never()).findByIds(any());
+    }
+
     @Test
     @DisplayName("GET /users/{id} - found user")
     void findUserByIdFound() throws Exception {
@@ -116,6 +222,106 @@ class UserControllerTest {
         verify(userService, times(1)).findById(userId);
     }
 
+    @Test
+    @DisplayName("GET /users/{id} - user links")
+    void findUserByIdLinks() throws Exception {
+        Long userId = TestUserFactory.USER_ID;
+        when(userService.findById(userId)).thenReturn(TestUserFactory.createUserDto(userId));
+
+        mockMvc.perform(get(MAIN_PATH_ID, userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/users/1"))
+                .andExpect(jsonPath("$._links.self.templated").doesNotExist())
+                .andExpect(jsonPath("$._links.users.href").value("http://localhost/users"))
+                .andExpect(jsonPath("$._links.update.href").value("http://localhost/users/1"))
+                .andExpect(jsonPath("$._links.delete.href").value("http://localhost/users/1"));
+    }
+
+    @Test
+    @DisplayName("GET /users - links of every user and collection")
+    void findAllUsersLinks() throws Exception {
+        when(userService.findCollectionVersion()).thenReturn(COLLECTION_VERSION);
+        when(userService.findAll()).thenReturn(List.of(
+                TestUserFactory.createUserDto(1L),
+                TestUserFactory.createUserDto(2L),
+                TestUserFactory.createUserDto()));
+
+        mockMvc.perform(get(MAIN_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/users"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[0]._links.self.href").value("http://localhost/users/1"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.self.href").value("http://localhost/users/2"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.users.href").value("http://localhost/users"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.update.href").value("http://localhost/users/2"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1]._links.delete.href").value("http://localhost/users/2"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[2]._links.self.href").value("http://localhost/users/{id}"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[2]._links.self.templated").value(true))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[2]._links.update.href").value("http://localhost/users"))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[2]._links.delete.href").value("http://localhost/users"));
+    }
+
+    @Test
+    @DisplayName("GET /users/{id} - ETag from id and version")
+    void findUserByIdETag() throws Exception {
+        Long userId = TestUserFactory.USER_ID;
+        UserDto user = TestUserFactory.createUserDto(userId);
+        user.setVersion(3L);
+        when(userService.findById(userId)).thenReturn(user);
+
+        mockMvc.perform(get(MAIN_PATH_ID, userId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /users/{id} - not modified")
+    void findUserByIdNotModified() throws Exception {
+        Long userId = TestUserFactory.USER_ID;
+        UserDto user = TestUserFactory.createUserDto(userId);
+        user.setVersion(3L);
+        when(userService.findById(userId)).thenReturn(user);
+
+        mockMvc.perform(get(MAIN_PATH_ID, userId).header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get(MAIN_PATH_ID, userId).header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /users - not modified without loading users")
+    void findAllUsersNotModified() throws Exception {
+        when(userService.findCollectionVersion()).thenReturn(COLLECTION_VERSION);
+
+        mockMvc.perform(get(MAIN_PATH).header(HttpHeaders.IF_NONE_MATCH, "\"users-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(userService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("GET /users?size - page ETag changes with user version")
+    void findUsersPageETag() throws Exception {
+        UserDto user = TestUserFactory.createUserDto(1L);
+        user.setVersion(0L);
+        when(userService.findPage(null, 1)).thenReturn(new UserPage(List.of(user), null));
+
+        String etag = mockMvc.perform(get(MAIN_PATH).param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(MAIN_PATH).param("size", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        user.setVersion(1L);
+        mockMvc.perform(get(MAIN_PATH).param("size", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("GET /users/{id} - not found user")
     void findUserByIdNotFound() throws Exception {
@@ -135,6 +341,7 @@ class UserControllerTest {
     @Test
     @DisplayName("GET /users - found users")
     void findAllUsersFound() throws Exception {
+        when(userService.findCollectionVersion()).thenReturn(COLLECTION_VERSION);
         List<UserDto> users = List.of(
                 TestUserFactory.createUserDto(),
                 TestUserFactory.createUserDtoWithEmail("secondUser@yandex.com")
@@ -143,13 +350,13 @@ class UserControllerTest {
 
         mockMvc.perform(get(MAIN_PATH))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(users.size()))
-                .andExpect(jsonPath("$[0].name").value(users.getFirst().getName()))
-                .andExpect(jsonPath("$[1].name").value(users.getLast().getName()))
-                .andExpect(jsonPath("$[0].email").value(users.getFirst().getEmail()))
-                .andExpect(jsonPath("$[1].email").value(users.getLast().getEmail()))
-                .andExpect(jsonPath("$[0].age").value(users.getFirst().getAge()))
-                .andExpect(jsonPath("$[1].age").value(users.getLast().getAge()));
+                .andExpect(jsonPath(USERS_LIST_PATH + ".size()").value(users.size()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[0].name").value(users.getFirst().getName()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1].name").value(users.getLast().getName()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[0].email").value(users.getFirst().getEmail()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1].email").value(users.getLast().getEmail()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[0].age").value(users.getFirst().getAge()))
+                .andExpect(jsonPath(USERS_LIST_PATH + "[1].age").value(users.getLast().getAge()));
 
         verify(userService, times(1)).findAll();
     }
@@ -157,15 +364,133 @@ class UserControllerTest {
     @Test
     @DisplayName("GET /users - empty list")
     void findAllUsersEmptyList() throws Exception {
+        when(userService.findCollectionVersion()).thenReturn(COLLECTION_VERSION);
         when(userService.findAll()).thenReturn(List.of());
 
         mockMvc.perform(get(MAIN_PATH))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(0));
+                .andExpect(jsonPath("$._embedded").doesNotExist());
 
         verify(userService, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("GET /users?size - first page with next link")
+    void findUsersPageWithNext() throws Exception {
+        List<UserDto> users = List.of(TestUserFactory.createUserDto(TestUserFactory.USER_ID));
+        when(userService.findPage(null, 1)).thenReturn(new UserPage(users, "next-cursor"));
+
+        mockMvc.perform(get(MAIN_PATH).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(USERS_LIST_PATH + ".size()").value(1))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/users?cursor=next-cursor&size=1"));
+
+        verify(userService, times(1)).findPage(null, 1);
+        verify(userService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("GET /users?cursor - last page without next link")
+    void findUsersLastPage() throws Exception {
+        List<UserDto> users = List.of(TestUserFactory.createUserDto(TestUserFactory.USER_ID));
+        when(userService.findPage("cursor", 20)).thenReturn(new UserPage(users, null));
+
+        mockMvc.perform(get(MAIN_PATH).param("cursor", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(USERS_LIST_PATH + ".size()").value(1))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(userService, times(1)).findPage("cursor", 20);
+    }
+
+    @Test
+    @DisplayName("GET /users?cursor - invalid cursor")
+    void findUsersInvalidCursor() throws Exception {
+        doThrow(new InvalidCursorException("Invalid cursor: broken"))
+                .when(userService).findPage("broken", 20);
+
+        mockMvc.perform(get(MAIN_PATH).param("cursor", "broken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title").value("Invalid cursor"));
+    }
+
+    @Test
+    @DisplayName("GET /users/search - filters are bound and echoed in next link")
+    void searchUsersWithNext() throws Exception {
+        UserSearchCriteria criteria = UserSearchCriteria.builder()
+                .minAge(18)
+                .maxAge(30)
+                .namePrefix("Ev")
+                .createdFrom(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .build();
+        List<UserDto> users = List.of(TestUserFactory.createUserDto(TestUserFactory.USER_ID));
+        when(userService.search(criteria, null, 1)).thenReturn(new UserPage(users, "next-cursor"));
+
+        mockMvc.perform(get(MAIN_PATH + "/search")
+                        .param("minAge", "18")
+                        .param("maxAge", "30")
+                        .param("namePrefix", "Ev")
+                        .param("createdFrom", "2025-01-01T00:00:00")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(USERS_LIST_PATH + ".size()").value(1))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/users/search?minAge=18&maxAge=30"
+                        + "&namePrefix=Ev&createdFrom=2025-01-01T00:00&cursor=next-cursor&size=1"));
+
+        verify(userService, times(1)).search(criteria, null, 1);
+    }
+
+    @Test
+    @DisplayName("GET /users/search - without filters is the last page")
+    void searchUsersWithoutFilters() throws Exception {
+        when(userService.search(new UserSearchCriteria(), "cursor", 20)).thenReturn(new UserPage(List.of(), null));
+
+        mockMvc.perform(get(MAIN_PATH + "/search").param("cursor", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/users/search?cursor=cursor&size=20"))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(userService, times(1)).search(new UserSearchCriteria(), "cursor", 20);
+    }
+
+    @Test
+    @DisplayName("GET /users/search - invalid age range")
+    void searchUsersInvalidAgeRange() throws Exception {
+        mockMvc.perform(get(MAIN_PATH + "/search")
+                        .param("minAge", "40")
+                        .param("maxAge", "30"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.title").value(VALIDATION_TITLE));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("GET /users/export - streams one json line per user")
+    @SuppressWarnings("unchecked")
+    void exportUsers() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 30, 15);
+        UserDto first = TestUserFactory.createUserDto(createdAt, 1L);
+        UserDto second = TestUserFactory.createUserDto(createdAt, 2L);
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(userService).exportAll(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get(MAIN_PATH + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"name\":\"Test\",\"email\":\"test@mail.com\",\"age\":22,\"createdAt\":\"2024-01-01T12:30:15\"}\n"
+                        + "{\"id\":2,\"name\":\"Test\",\"email\":\"test@mail.com\",\"age\":22,\"createdAt\":\"2024-01-01T12:30:15\"}\n"));
+    }
+
     @Test
     @DisplayName("PUT /users/{id} - no content")
     void updateUserOk() throws Exception {
@@ -199,6 +524,76 @@ class UserControllerTest {
         verify(userService, times(1)).update(userId, userDto);
     }
 
+    @Test
+    @DisplayName("PUT /users/{id} - concurrent modification")
+    void updateUserConflict() throws Exception {
+        UserDto userDto = TestUserFactory.createUserDto();
+        Long userId = TestUserFactory.USER_ID;
+
+        doThrow(new ObjectOptimisticLockingFailureException(User.class, userId))
+                .when(userService).update(userId, userDto);
+
+        mockMvc.perform(MockMvcRequestBuilders.put(MAIN_PATH_ID, userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.title").value("Concurrent modification"));
+    }
+
+    @Test
+    @DisplayName("PATCH /users/{id} - no content")
+    void patchUserOk() throws Exception {
+        Long userId = TestUserFactory.USER_ID;
+        UserPatchDto patch = UserPatchDto.builder().age(31).build();
+
+        mockMvc.perform(patch(MAIN_PATH_ID, userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":31}"))
+                .andExpect(status().isNoContent());
+
+        verify(userService, times(1)).patch(userId, patch);
+    }
+
+    @Test
+    @DisplayName("PATCH /users/{id} - no field specified")
+    void patchUserEmpty() throws Exception {
+        mockMvc.perform(patch(MAIN_PATH_ID, TestUserFactory.USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.title").value(VALIDATION_TITLE))
+                .andExpect(jsonPath("$.fieldErrors.anyFieldSpecified").exists());
+
+        verify(userService, never()).patch(any(), any());
+    }
+
+    @Test
+    @DisplayName("PATCH /users/{id} - invalid field")
+    void patchUserInvalid() throws Exception {
+        mockMvc.perform(patch(MAIN_PATH_ID, TestUserFactory.USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"   \",\"age\":200}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.fieldErrors.name").exists())
+                .andExpect(jsonPath("$.fieldErrors.age").value("max valid age 100"));
+
+        verify(userService, never()).patch(any(), any());
+    }
+
+    @Test
+    @DisplayName("PATCH /users/{id} - user not found")
+    void patchUserNotFound() throws Exception {
+        Long userId = TestUserFactory.USER_ID;
+        String msg = USER_NOT_FOUND_MESSAGE + userId;
+        doThrow(new UserNotFoundException(msg)).when(userService).patch(eq(userId), any());
+
+        mockMvc.perform(patch(MAIN_PATH_ID, userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@mail.com\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value(msg));
+    }
+
     @Test
     @DisplayName("DELETE /users/{id} - not content")
     void deleteUserOk() throws Exception {
@@ -225,4 +620,28 @@ class UserControllerTest {
 
         verify(userService, times(1)).deleteById(userId);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /users - deadline exceeded")
+    void findAllDeadlineExceeded() throws Exception {
+        when(userService.findCollectionVersion())
+                .thenThrow(new DeadlineExceededException("Request deadline exceeded before the transaction started"));
+
+        mockMvc.perform(get(MAIN_PATH))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.title").value("Deadline exceeded"));
+    }
+
+    @Test
+    @DisplayName("POST /users - statement canceled by the deadline")
+    void createStatementTimeout() throws Exception {
+        UserDto userDto = TestUserFactory.createUserDto();
+        when(userService.saveNewUser(userDto)).thenThrow(new QueryTimeoutException("canceling statement"));
+
+        mockMvc.perform(post(MAIN_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.title").value("Deadline exceeded"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.bulish.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaAvailabilityTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final KafkaAvailability availability = new KafkaAvailability(100, 300, nanoTime::get);
+
+    @Test
+    @DisplayName("availability - backoff doubles up to the maximum")
+    void backoffGrows() {
+        assertTrue(availability.isAvailable());
+
+        availability.onFailure();
+        assertUnavailableFor(100);
+
+        availability.onFailure();
+        assertUnavailableFor(200);
+
+        availability.onFailure();
+        assertUnavailableFor(300);
+
+        availability.onFailure();
+        assertUnavailableFor(300);
+    }
+
+    @Test
+    @DisplayName("availability - success resets the backoff")
+    void successResets() {
+        availability.onFailure();
+        availability.onFailure();
+
+        availability.onSuccess();
+
+        assertTrue(availability.isAvailable());
+        availability.onFailure();
+        assertUnavailableFor(100);
+    }
+
+    private void assertUnavailableFor(long millis) {
+        long start = nanoTime.get();
+        nanoTime.set(start + TimeUnit.MILLISECONDS.toNanos(millis) - 1);
+        assertFalse(availability.isAvailable());
+        nanoTime.set(start + TimeUnit.MILLISECONDS.toNanos(millis));
+        assertTrue(availability.isAvailable());
+    }
+}
@@ -0,0 +1,138 @@
+package com.bulish.kafka;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class KafkaOutageIT extends PostgresIT {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.poll-interval-ms", () -> "100");
+        registry.add("outbox.relay.grace-period-ms", () -> "200");
+        registry.add("outbox.kafka.backoff-initial-ms", () -> "100");
+        registry.add("outbox.kafka.backoff-max-ms", () -> "500");
+    }
+
+    @MockitoBean
+    private KafkaUserEventProducer userProducer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private KafkaAvailability kafkaAvailability;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicBoolean brokerUp = new AtomicBoolean();
+    private final List<String> published = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM user_event_outbox_failed");
+        when(userProducer.sendEvent(any(), any(), any())).thenAnswer(invocation -> {
+            if (!brokerUp.get()) {
+                return CompletableFuture.failedFuture(new TimeoutException("broker down"));
+            }
+            UserOperationEvent event = invocation.getArgument(2);
+            if (event.getEmail().startsWith("rejected")) {
+                return CompletableFuture.failedFuture(new RecordTooLargeException("record too large"));
+            }
+            published.add(invocation.getArgument(1) + ":" + event.getUserOperation());
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    @DisplayName("broker outage - events wait in the outbox and are published in order per user after recovery")
+    void rideOutOutage() throws InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UserDto user = TestUserFactory.createUserDto();
+            user.setEmail("outage" + i + "@mail.com");
+            ids.add(userService.saveNewUser(user).getId());
+        }
+        userService.deleteById(ids.get(0));
+        userService.deleteById(ids.get(3));
+
+        TimeUnit.SECONDS.sleep(1);
+        assertEquals(7, outboxRepository.count());
+        assertTrue(published.isEmpty());
+
+        brokerUp.set(true);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        assertEquals(0, outboxRepository.count());
+        assertEquals(7, published.size());
+        for (Long id : List.of(ids.get(0), ids.get(3))) {
+            assertTrue(published.indexOf(id + ":" + UserOperation.CREATE)
+                    < published.indexOf(id + ":" + UserOperation.DELETE), published.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("rejected event - moved to user_event_outbox_failed, the events behind it are published")
+    void moveRejectedEventAside() throws InterruptedException {
+        brokerUp.set(true);
+        UserDto rejected = TestUserFactory.createUserDto();
+        rejected.setEmail("rejected@mail.com");
+        userService.saveNewUser(rejected);
+        for (int i = 0; i < 3; i++) {
+            UserDto user = TestUserFactory.createUserDto();
+            user.setEmail("accepted" + i + "@mail.com");
+            userService.saveNewUser(user);
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        assertEquals(0, outboxRepository.count());
+        assertEquals(3, published.size());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM user_event_outbox_failed WHERE email = 'rejected@mail.com'", Integer.class));
+        assertTrue(kafkaAvailability.isAvailable());
+    }
+}
@@ -0,0 +1,79 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserOperationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaUserEventProducerTest {
+
+    private final MockProducer<String, byte[]> mockProducer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+    private final UserEventCodecs codecs = new UserEventCodecs(List.of(
+            new JsonUserEventCodec(new ObjectMapper()),
+            new BinaryUserEventCodec(new UserEventSchemaRegistry(
+                    new ClassPathResource("kafka/user-event-schemas.properties")))));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UserOperationEvent event = UserOperationEvent.builder()
+            .userOperation(UserOperation.CREATE)
+            .email("user@mail.com")
+            .build();
+
+    @Test
+    @DisplayName("sendEvent - payload encoded with configured codec and codec header")
+    void sendEventWithCodecHeader() throws Exception {
+        KafkaUserEventProducer producer = new KafkaUserEventProducer(mockProducer, codecs, "binary", meterRegistry);
+
+        producer.sendEvent("user-events", "1", event).get();
+
+        ProducerRecord<String, byte[]> record = mockProducer.history().getFirst();
+        assertEquals("1", record.key());
+        assertEquals("binary", new String(record.headers().lastHeader(UserEventCodec.HEADER).value(),
+                StandardCharsets.UTF_8));
+        assertEquals(event, codecs.decode(record.headers(), record.value()));
+        assertEquals(1, meterRegistry.get("kafka.user.events.send").tag("codec", "binary").timer().count());
+    }
+
+    @Test
+    @DisplayName("sendEvent - broker error counted from callback")
+    void sendEventBrokerError() {
+        MockProducer<String, byte[]> failingProducer =
+                new MockProducer<>(false, new StringSerializer(), new ByteArraySerializer());
+        KafkaUserEventProducer producer = new KafkaUserEventProducer(failingProducer, codecs, "json", meterRegistry);
+
+        Future<?> result = producer.sendEvent("user-events", "1", event);
+        failingProducer.errorNext(new IllegalStateException("broker down"));
+
+        assertThrows(ExecutionException.class, result::get);
+        assertEquals(1, meterRegistry.get("kafka.user.events.errors").tag("type", "send").counter().count());
+        assertEquals(0, meterRegistry.get("kafka.user.events.send").timer().count());
+    }
+
+    @Test
+    @DisplayName("sendEvent - encoding failure returns failed future")
+    void sendEventEncodingFailure() {
+        KafkaUserEventProducer producer = new KafkaUserEventProducer(mockProducer, codecs, "binary", meterRegistry);
+
+        Future<?> result = producer.sendEvent("user-events", "1", new UserOperationEvent(null, "user@mail.com"));
+
+        assertThrows(ExecutionException.class, result::get);
+        assertTrue(mockProducer.history().isEmpty());
+        assertEquals(1, meterRegistry.get("kafka.user.events.errors").tag("type", "serialization").counter().count());
+    }
+}
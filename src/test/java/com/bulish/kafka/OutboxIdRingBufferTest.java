@@ -0,0 +1,100 @@
+package com.bulish.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxIdRingBufferTest {
+
+    @Test
+    @DisplayName("ring buffer - first in first out until full")
+    void fifoUntilFull() {
+        OutboxIdRingBuffer buffer = new OutboxIdRingBuffer(3);
+
+        assertEquals(4, buffer.capacity());
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(buffer.offer(id));
+        }
+        assertFalse(buffer.offer(5));
+        assertEquals(4, buffer.size());
+
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(5));
+
+        long[] batch = new long[10];
+        assertEquals(4, buffer.drainTo(batch));
+        assertArrayEquals(new long[]{2, 3, 4, 5}, Arrays.copyOf(batch, 4));
+        assertEquals(OutboxIdRingBuffer.EMPTY, buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    @DisplayName("ring buffer - concurrent producers and consumers neither lose nor duplicate ids")
+    void concurrentProducersAndConsumers() throws Exception {
+        int producers = 4;
+        int idsPerProducer = 10_000;
+        OutboxIdRingBuffer buffer = new OutboxIdRingBuffer(64);
+        ConcurrentHashMap.KeySetView<Long, Boolean> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers + 2)) {
+            List<Future<?>> producerResults = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                long firstId = (long) producer * idsPerProducer + 1;
+                producerResults.add(executor.submit(() -> {
+                    start.await();
+                    for (long id = firstId; id < firstId + idsPerProducer; id++) {
+                        while (!buffer.offer(id)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> consumerResults = new ArrayList<>();
+            for (int consumer = 0; consumer < 2; consumer++) {
+                consumerResults.add(executor.submit(() -> {
+                    start.await();
+                    while (received.size() < producers * idsPerProducer) {
+                        long id = buffer.poll();
+                        if (id == OutboxIdRingBuffer.EMPTY) {
+                            Thread.yield();
+                        } else if (!received.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : producerResults) {
+                result.get();
+            }
+            for (Future<?> result : consumerResults) {
+                result.get();
+            }
+        }
+
+        assertEquals(producers * idsPerProducer, received.size());
+        assertEquals(0, duplicates.get());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    @DisplayName("ring buffer - invalid capacity")
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new OutboxIdRingBuffer(0));
+    }
+}
@@ -0,0 +1,90 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserOperationEvent;
+import com.bulish.exceptions.EventCodecException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventCodecsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonUserEventCodec jsonCodec = new JsonUserEventCodec(objectMapper);
+    private final BinaryUserEventCodec binaryCodec = new BinaryUserEventCodec(
+            new UserEventSchemaRegistry(new ClassPathResource("kafka/user-event-schemas.properties")));
+    private final UserEventCodecs codecs = new UserEventCodecs(List.of(jsonCodec, binaryCodec));
+
+    private final UserOperationEvent event = UserOperationEvent.builder()
+            .userOperation(UserOperation.DELETE)
+            .email("user@mail.com")
+            .build();
+
+    @Test
+    @DisplayName("binary codec - round trip")
+    void binaryRoundTrip() {
+        byte[] payload = binaryCodec.encode(event);
+
+        assertEquals(event, binaryCodec.decode(payload));
+        assertEquals(1, payload[0]);
+        assertEquals(2, payload[1]);
+        assertEquals(3 + event.getEmail().length(), payload.length);
+        assertTrue(payload.length < jsonCodec.encode(event).length);
+    }
+
+    @Test
+    @DisplayName("binary codec - long non-ascii email")
+    void binaryLongEmail() {
+        UserOperationEvent longEmail = UserOperationEvent.builder()
+                .userOperation(UserOperation.CREATE)
+                .email("пользователь".repeat(20) + "@mail.com")
+                .build();
+
+        assertEquals(longEmail, binaryCodec.decode(binaryCodec.encode(longEmail)));
+    }
+
+    @Test
+    @DisplayName("binary codec - unknown schema version")
+    void binaryUnknownVersion() {
+        byte[] payload = binaryCodec.encode(event);
+        payload[0] = 9;
+
+        assertThrows(EventCodecException.class, () -> binaryCodec.decode(payload));
+    }
+
+    @Test
+    @DisplayName("binary codec - truncated payload")
+    void binaryTruncated() {
+        byte[] payload = binaryCodec.encode(event);
+
+        assertThrows(EventCodecException.class, () -> binaryCodec.decode(Arrays.copyOf(payload, 5)));
+    }
+
+    @Test
+    @DisplayName("json codec - same bytes as the former string payload")
+    void jsonMatchesStringPayload() throws Exception {
+        assertArrayEquals(objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8),
+                jsonCodec.encode(event));
+        assertEquals(event, jsonCodec.decode(jsonCodec.encode(event)));
+    }
+
+    @Test
+    @DisplayName("codecs - selected by header, json without header")
+    void codecFromHeader() {
+        RecordHeaders binaryHeaders = new RecordHeaders();
+        binaryHeaders.add(UserEventCodec.HEADER, "binary".getBytes(StandardCharsets.UTF_8));
+
+        assertSame(binaryCodec, codecs.forHeaders(binaryHeaders));
+        assertSame(jsonCodec, codecs.forHeaders(new RecordHeaders()));
+        assertEquals(event, codecs.decode(binaryHeaders, binaryCodec.encode(event)));
+        assertThrows(EventCodecException.class, () -> codecs.get("avro"));
+    }
+}
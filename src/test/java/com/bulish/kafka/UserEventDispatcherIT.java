@@ -0,0 +1,96 @@
+package com.bulish.kafka;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class UserEventDispatcherIT extends PostgresIT {
+
+    private static final long BROKER_DELAY_MS = 300;
+    private static final int USERS = 20;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.queue-capacity", () -> "4");
+        registry.add("outbox.dispatch.overflow-policy", () -> "SPILL");
+    }
+
+    @MockitoBean
+    private KafkaUserEventProducer userProducer;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("slow broker - requests do not wait for kafka, overflow stays in the outbox")
+    void slowBrokerDoesNotSlowDownRequests() throws InterruptedException {
+        when(userProducer.sendEvent(any(), any(), any())).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(BROKER_DELAY_MS);
+            return CompletableFuture.completedFuture(null);
+        });
+        double overflowsBefore = meterRegistry.get("outbox.dispatch.overflow").counter().count();
+
+        // the first save warms up the persistence layer and is not measured
+        UserDto warmUp = TestUserFactory.createUserDto();
+        warmUp.setEmail("warmup@mail.com");
+        userService.saveNewUser(warmUp);
+
+        long slowestSaveNanos = 0;
+        for (int i = 0; i < USERS; i++) {
+            UserDto user = TestUserFactory.createUserDto();
+            user.setEmail("dispatch" + i + "@mail.com");
+            long startNanos = System.nanoTime();
+            userService.saveNewUser(user);
+            slowestSaveNanos = Math.max(slowestSaveNanos, System.nanoTime() - startNanos);
+        }
+
+        assertTrue(slowestSaveNanos < TimeUnit.MILLISECONDS.toNanos(BROKER_DELAY_MS),
+                "slowest save took " + TimeUnit.NANOSECONDS.toMillis(slowestSaveNanos) + "ms");
+
+        long spilled = (long) (meterRegistry.get("outbox.dispatch.overflow").counter().count() - overflowsBefore);
+        assertTrue(spilled > 0);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (outboxRepository.count() > spilled && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        // dispatched events are deleted once acknowledged, spilled ones wait for the relay
+        assertEquals(spilled, outboxRepository.count());
+    }
+}
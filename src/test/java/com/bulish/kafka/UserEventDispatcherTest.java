@@ -0,0 +1,166 @@
+package com.bulish.kafka;
+
+import com.bulish.kafka.UserEventDispatcher.OverflowPolicy;
+import com.bulish.model.UserEventOutbox;
+import com.bulish.repository.UserEventOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventDispatcherTest {
+
+    private static final int QUEUE_CAPACITY = 2;
+
+    @Mock
+    private UserEventOutboxRepository outboxRepository;
+
+    @Mock
+    private UserEventOutboxSender outboxSender;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final KafkaAvailability kafkaAvailability = new KafkaAvailability(60_000, 60_000, System::nanoTime);
+
+    @Test
+    @DisplayName("dispatch - queued events are locked and sent as one batch")
+    void dispatchBatch() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+        List<UserEventOutbox> rows = List.of(new UserEventOutbox(), new UserEventOutbox());
+        when(outboxRepository.lockDispatchable(List.of(1L, 2L))).thenReturn(rows);
+
+        dispatcher.enqueue(1L);
+        dispatcher.enqueue(2L);
+
+        assertEquals(2, queueDepth());
+        assertEquals(2, dispatcher.dispatchBatch());
+        assertEquals(0, queueDepth());
+        verify(outboxSender, times(1)).sendAndDelete(rows);
+    }
+
+    @Test
+    @DisplayName("dispatch - spill leaves the new event to the relay")
+    void overflowSpill() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+
+        List.of(1L, 2L, 3L).forEach(dispatcher::enqueue);
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository, times(1)).lockDispatchable(List.of(1L, 2L));
+        assertEquals(1, overflows());
+    }
+
+    @Test
+    @DisplayName("dispatch - drop oldest keeps the newest events")
+    void overflowDropOldest() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.DROP_OLDEST);
+
+        List.of(1L, 2L, 3L).forEach(dispatcher::enqueue);
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository, times(1)).lockDispatchable(List.of(2L, 3L));
+        assertEquals(1, overflows());
+    }
+
+    @Test
+    @DisplayName("dispatch - block waits for a free slot up to the timeout")
+    void overflowBlock() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.BLOCK);
+        List.of(1L, 2L).forEach(dispatcher::enqueue);
+
+        long startNanos = System.nanoTime();
+        dispatcher.enqueue(3L);
+
+        assertTrue(System.nanoTime() - startNanos >= 20_000_000);
+        assertEquals(QUEUE_CAPACITY, queueDepth());
+        assertEquals(1, overflows());
+    }
+
+    @Test
+    @DisplayName("dispatch - failed batch is left in the outbox")
+    void dispatchFailure() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+        when(outboxRepository.lockDispatchable(any())).thenThrow(new IllegalStateException("db down"));
+
+        dispatcher.enqueue(1L);
+
+        assertEquals(1, dispatcher.dispatchBatch());
+        verifyNoInteractions(outboxSender);
+    }
+
+    @Test
+    @DisplayName("dispatch - events are left to the relay while kafka is unavailable")
+    void dispatchWhileKafkaUnavailable() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+        kafkaAvailability.onFailure();
+
+        dispatcher.enqueue(1L);
+        dispatcher.enqueue(2L);
+
+        assertEquals(2, dispatcher.dispatchBatch());
+        assertEquals(0, queueDepth());
+        assertEquals(2, meterRegistry.get("outbox.dispatch.deferred").counter().count());
+        verifyNoInteractions(outboxRepository, outboxSender);
+    }
+
+    @Test
+    @DisplayName("dispatch - events are enqueued only after commit")
+    void dispatchAfterCommit() {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dispatcher.dispatchAfterCommit(List.of(1L, 2L));
+            assertEquals(0, queueDepth());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(2, queueDepth());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("dispatch - sender thread sends enqueued events")
+    void senderThread() throws InterruptedException {
+        UserEventDispatcher dispatcher = dispatcher(OverflowPolicy.SPILL);
+        dispatcher.start();
+        try {
+            dispatcher.enqueue(1L);
+
+            verify(outboxRepository, timeout(1000)).lockDispatchable(List.of(1L));
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    private UserEventDispatcher dispatcher(OverflowPolicy overflowPolicy) {
+        return new UserEventDispatcher(outboxRepository, outboxSender, kafkaAvailability,
+                new TransactionTemplate(transactionManager),
+                QUEUE_CAPACITY, 10, overflowPolicy, 20, meterRegistry);
+    }
+
+    private double queueDepth() {
+        return meterRegistry.get("outbox.dispatch.queue.depth").gauge().value();
+    }
+
+    private double overflows() {
+        return meterRegistry.get("outbox.dispatch.overflow").counter().count();
+    }
+}
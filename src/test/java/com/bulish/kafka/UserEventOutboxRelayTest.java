@@ -0,0 +1,167 @@
+package com.bulish.kafka;
+
+import com.bulish.dto.UserOperation;
+import com.bulish.exceptions.EventCodecException;
+import com.bulish.model.UserEventOutbox;
+import com.bulish.repository.UserEventOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventOutboxRelayTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    @Mock
+    private UserEventOutboxRepository outboxRepository;
+
+    @Mock
+    private KafkaUserEventProducer userProducer;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private KafkaAvailability kafkaAvailability;
+
+    private UserEventOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        kafkaAvailability = new KafkaAvailability(60_000, 60_000, System::nanoTime);
+        UserEventOutboxSender outboxSender = new UserEventOutboxSender(outboxRepository, userProducer, kafkaAvailability,
+                meterRegistry);
+        ReflectionTestUtils.setField(outboxSender, "sendTimeoutMs", 100L);
+        relay = new UserEventOutboxRelay(outboxRepository, outboxSender, kafkaAvailability,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(relay, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(relay, "gracePeriodMs", 2000L);
+    }
+
+    @Test
+    @DisplayName("relay - deletes acknowledged events")
+    void relayDeletesSentEvents() {
+        List<UserEventOutbox> batch = List.of(outboxEvent(1L), outboxEvent(2L));
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(userProducer.sendEvent(eq("user-events"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(mock(RecordMetadata.class)));
+
+        relay.relay();
+
+        verify(userProducer, times(2)).sendEvent(eq("user-events"), any(), any());
+        verify(outboxRepository, times(1)).deleteAllInBatch(batch);
+    }
+
+    @Test
+    @DisplayName("relay - keeps events from the first failed send")
+    void relayStopsAtFirstFailure() {
+        List<UserEventOutbox> batch = List.of(outboxEvent(1L), outboxEvent(2L), outboxEvent(3L));
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(userProducer.sendEvent(eq("user-events"), any(), any())).thenReturn(
+                CompletableFuture.completedFuture(mock(RecordMetadata.class)),
+                CompletableFuture.failedFuture(new IllegalStateException("broker down")),
+                CompletableFuture.completedFuture(mock(RecordMetadata.class)));
+
+        relay.relay();
+
+        verify(outboxRepository, times(1)).deleteAllInBatch(List.of(batch.getFirst()));
+        verify(outboxRepository, times(1)).lockNextBatch(eq(BATCH_SIZE), any());
+        verify(userProducer, times(2)).sendEvent(eq("user-events"), any(), any());
+        verify(outboxRepository, never()).copyToFailed(any(), any());
+    }
+
+    @Test
+    @DisplayName("relay - waits for the backoff after a failed send")
+    void relayBacksOffAfterFailure() {
+        List<UserEventOutbox> batch = List.of(outboxEvent(1L));
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(userProducer.sendEvent(eq("user-events"), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+        relay.relay();
+
+        assertFalse(kafkaAvailability.isAvailable());
+        verify(outboxRepository, times(1)).lockNextBatch(eq(BATCH_SIZE), any());
+        verify(outboxRepository, times(1)).deleteAllInBatch(List.of());
+    }
+
+    @Test
+    @DisplayName("relay - moves events kafka rejects for good aside and sends the rest")
+    void relayMovesRejectedEvents() {
+        List<UserEventOutbox> batch = List.of(outboxEvent(1L), outboxEvent(2L), outboxEvent(3L));
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(userProducer.sendEvent(eq("user-events"), any(), any())).thenReturn(
+                CompletableFuture.failedFuture(new EventCodecException("broken event")),
+                CompletableFuture.failedFuture(new RecordTooLargeException("too large")),
+                CompletableFuture.completedFuture(mock(RecordMetadata.class)));
+
+        relay.relay();
+
+        verify(userProducer, times(3)).sendEvent(eq("user-events"), any(), any());
+        verify(outboxRepository, times(1)).copyToFailed(eq(1L), contains("EventCodecException"));
+        verify(outboxRepository, times(1)).copyToFailed(eq(2L), contains("RecordTooLargeException"));
+        verify(outboxRepository, times(1)).deleteAllInBatch(batch);
+        assertTrue(kafkaAvailability.isAvailable());
+        assertEquals(2, meterRegistry.get("outbox.failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("relay - empty outbox")
+    void relayEmptyOutbox() {
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of());
+
+        relay.relay();
+
+        verifyNoInteractions(userProducer);
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+    }
+
+    @Test
+    @DisplayName("relay - leaves events younger than the grace period to the dispatcher")
+    void relaySkipsGracePeriod() {
+        when(outboxRepository.lockNextBatch(eq(BATCH_SIZE), any())).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        relay.relay();
+
+        ArgumentCaptor<LocalDateTime> createdBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).lockNextBatch(eq(BATCH_SIZE), createdBefore.capture());
+        assertTrue(createdBefore.getValue().isBefore(before.minusSeconds(1)));
+    }
+
+    private UserEventOutbox outboxEvent(Long id) {
+        return UserEventOutbox.builder()
+                .id(id)
+                .topic("user-events")
+                .eventKey(id.toString())
+                .operation(UserOperation.CREATE)
+                .email("user" + id + "@mail.com")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.bulish.loadtest;
+
+import com.bulish.loadtest.LoadProfile.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the operations of a {@link LoadProfile} mix over HTTP and records them in a {@link LoadReport}.
+ * <p>
+ * {@link #openLoop} issues request {@code i} at {@code start + i / rps} whether or not earlier ones have
+ * completed, and latency is measured from that due time, so a stalled service shows up in the percentiles
+ * instead of silently lowering the request rate. {@link #closedLoop} keeps a fixed number of clients busy,
+ * each sending its next request when the previous one completed; it measures how many requests the service
+ * answers successfully, and its latencies are service times.
+ */
+class LoadDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final LoadProfile profile;
+    private final LoadReport report;
+    private final String baseUrl;
+    private final long[] seededIds;
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    /**
+     * @param seededIds users inserted before the run, the targets of reads and updates
+     */
+    LoadDriver(LoadProfile profile, LoadReport report, int port, long[] seededIds) {
+        this.profile = profile;
+        this.report = report;
+        this.baseUrl = "http://localhost:" + port;
+        this.seededIds = seededIds;
+    }
+
+    /**
+     * @return completed requests per second
+     */
+    double openLoop(Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / profile.rps();
+        long requests = duration.toNanos() / intervalNanos;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = profile.pick(random.nextInt(profile.totalWeight()));
+                executor.submit(() -> execute(operation, intended));
+            }
+        }
+        return requests * (double) TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+    }
+
+    /**
+     * @return requests answered with 2xx per second
+     */
+    double closedLoop(int clients, Duration duration) {
+        AtomicLong succeeded = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        if (execute(profile.pick(random.nextInt(profile.totalWeight())), System.nanoTime())) {
+                            succeeded.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        return succeeded.get() * (double) TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+    }
+
+    /**
+     * @return whether the request was answered with 2xx
+     */
+    private boolean execute(Operation operation, long intended) {
+        Long deleteId = null;
+        if (operation == Operation.DELETE) {
+            deleteId = createdIds.poll();
+            if (deleteId == null) {
+                // nothing created yet, seeded users stay so that reads and updates always find their target
+                operation = Operation.CREATE;
+            }
+        }
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request(operation, deleteId),
+                    HttpResponse.BodyHandlers.ofString());
+            report.record(operation, intended, sent, System.nanoTime(), response.statusCode());
+            if (operation == Operation.CREATE && response.statusCode() == 201) {
+                createdIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            }
+            return response.statusCode() >= 200 && response.statusCode() < 300;
+        } catch (IOException exception) {
+            report.recordFailure(operation, intended, sent, System.nanoTime());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            report.recordFailure(operation, intended, sent, System.nanoTime());
+        }
+        return false;
+    }
+
+    private HttpRequest request(Operation operation, Long deleteId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long seededId = seededIds[random.nextInt(seededIds.length)];
+        return switch (operation) {
+            case CREATE -> json(HttpRequest.newBuilder(uri("/users")), "POST",
+                    "{\"name\":\"load\",\"email\":\"load" + emailSequence.incrementAndGet()
+                            + "@mail.com\",\"age\":30}");
+            case READ -> HttpRequest.newBuilder(uri("/users/" + seededId)).timeout(REQUEST_TIMEOUT).GET().build();
+            // not cached, every search is a query on idx_users_name_prefix
+            case SEARCH -> HttpRequest.newBuilder(uri("/users/search?namePrefix=name" + random.nextInt(100)
+                    + "&size=20")).timeout(REQUEST_TIMEOUT).GET().build();
+            case UPDATE -> json(HttpRequest.newBuilder(uri("/users/" + seededId)), "PATCH",
+                    "{\"age\":" + random.nextInt(7, 101) + "}");
+            case DELETE -> HttpRequest.newBuilder(uri("/users/" + deleteId)).timeout(REQUEST_TIMEOUT).DELETE().build();
+        };
+    }
+
+    private static HttpRequest json(HttpRequest.Builder builder, String method, String body) {
+        return builder.timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bulish.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties so the {@code loadtest} Maven profile
+ * and the command line can change them without touching the code.
+ *
+ * @param rps       requests per second the driver issues, regardless of how fast the service answers
+ * @param mix       relative weight of every operation, e.g. {@code create=10,read=70,update=15,delete=5};
+ *                  {@code search} queries /users/search, which is never served from a cache
+ * @param users     users inserted before the run, the targets of reads and updates
+ * @param maxP99Ms  fails the run when the corrected p99 of any operation is higher, not checked when empty
+ */
+public record LoadProfile(int rps,
+                          Duration duration,
+                          Duration warmup,
+                          Map<Operation, Integer> mix,
+                          int users,
+                          Path reportDir,
+                          OptionalLong maxP99Ms) {
+
+    public enum Operation {
+        CREATE,
+        READ,
+        SEARCH,
+        UPDATE,
+        DELETE
+    }
+
+    public static LoadProfile fromSystemProperties() {
+        String maxP99 = System.getProperty("loadtest.max-p99-ms", "");
+        return new LoadProfile(
+                Integer.getInteger("loadtest.rps", 5000),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s")),
+                parseMix(System.getProperty("loadtest.mix", "create=10,read=70,update=15,delete=5")),
+                Integer.getInteger("loadtest.users", 10_000),
+                Path.of(System.getProperty("loadtest.report-dir", "target/loadtest")),
+                maxP99.isBlank() ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(maxP99)));
+    }
+
+    public LoadProfile withMix(Map<Operation, Integer> mix) {
+        return new LoadProfile(rps, duration, warmup, mix, users, reportDir, maxP99Ms);
+    }
+
+    public LoadProfile withReportDir(Path reportDir) {
+        return new LoadProfile(rps, duration, warmup, mix, users, reportDir, maxP99Ms);
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("loadtest.mix entries look like read=70, got: " + entry);
+            }
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("loadtest.mix needs a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    /**
+     * @param roll uniformly distributed in {@code [0, totalWeight())}
+     */
+    public Operation pick(int roll) {
+        int bound = 0;
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            bound += weight.getValue();
+            if (roll < bound) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalArgumentException("roll out of range: " + roll);
+    }
+
+    public int totalWeight() {
+        return mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,155 @@
+package com.bulish.loadtest;
+
+import com.bulish.loadtest.LoadProfile.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and response codes per operation. Every request is recorded twice: from the moment the schedule
+ * intended to send it, which includes the time it waited behind slow requests (coordinated omission corrected),
+ * and from the moment it was actually sent (service time).
+ * <p>
+ * {@link #write} produces {@code summary.json} and one HdrHistogram log per operation with fixed names,
+ * so the reports of two builds can be diffed or loaded into HistogramLogAnalyzer.
+ */
+class LoadReport {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+
+    LoadReport() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    void record(Operation operation, long intendedNanos, long sentNanos, long completedNanos, int status) {
+        OperationStats stats = operations.get(operation);
+        stats.latency.recordValue(Math.min(completedNanos - intendedNanos, MAX_LATENCY_NANOS));
+        stats.serviceTime.recordValue(Math.min(completedNanos - sentNanos, MAX_LATENCY_NANOS));
+        stats.statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+    }
+
+    /**
+     * A request that got no response at all, recorded with status 0.
+     */
+    void recordFailure(Operation operation, long intendedNanos, long sentNanos, long completedNanos) {
+        record(operation, intendedNanos, sentNanos, completedNanos, 0);
+    }
+
+    void reset() {
+        operations.values().forEach(OperationStats::reset);
+    }
+
+    long count(Operation operation) {
+        return operations.get(operation).latency.getTotalCount();
+    }
+
+    long errors(Operation operation) {
+        return operations.get(operation).statuses.entrySet().stream()
+                .filter(status -> status.getKey() < 200 || status.getKey() >= 300)
+                .mapToLong(status -> status.getValue().sum())
+                .sum();
+    }
+
+    long p99Millis(Operation operation) {
+        return TimeUnit.NANOSECONDS.toMillis(operations.get(operation).latency.getValueAtPercentile(99));
+    }
+
+    /**
+     * @param run settings and results of the run, written ahead of the per-operation statistics
+     */
+    void write(Path reportDir, Instant started, Map<String, Object> run) throws IOException {
+        Files.createDirectories(reportDir);
+        long finished = System.currentTimeMillis();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("startedAt", started.toString());
+        summary.putAll(run);
+        Map<String, Object> perOperation = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            if (stats.latency.getTotalCount() == 0) {
+                continue;
+            }
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("count", stats.latency.getTotalCount());
+            operation.put("errors", errors(entry.getKey()));
+            Map<Integer, Long> statuses = new TreeMap<>();
+            stats.statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+            operation.put("statuses", statuses);
+            operation.put("latencyMs", percentiles(stats.latency));
+            operation.put("serviceTimeMs", percentiles(stats.serviceTime));
+            perOperation.put(entry.getKey().name().toLowerCase(), operation);
+
+            stats.latency.setStartTimeStamp(started.toEpochMilli());
+            stats.latency.setEndTimeStamp(finished);
+            writeHistogramLog(reportDir.resolve(entry.getKey().name().toLowerCase() + ".hlog"),
+                    started, stats.latency);
+        }
+        summary.put("operations", perOperation);
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportDir.resolve("summary.json").toFile(), summary);
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile)), millis(histogram.getValueAtPercentile(percentile)));
+        }
+        values.put("max", millis(histogram.getMaxValue()));
+        values.put("mean", millis(Math.round(histogram.getMean())));
+        return values;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static void writeHistogramLog(Path file, Instant started, Histogram histogram) throws IOException {
+        try (var out = Files.newOutputStream(file)) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(started.toEpochMilli());
+            writer.setBaseTime(started.toEpochMilli());
+            writer.outputLegend();
+            writer.outputIntervalHistogram(histogram);
+            writer.close();
+        }
+    }
+
+    private static final class OperationStats {
+
+        private final Histogram latency = histogram();
+        private final Histogram serviceTime = histogram();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private static Histogram histogram() {
+            return new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        }
+
+        private void reset() {
+            latency.reset();
+            serviceTime.reset();
+            statuses.clear();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.bulish.loadtest;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.UserServiceApplication;
+import com.bulish.model.User;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.ResolvableType;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a create/read/update/delete mix over HTTP at a fixed request rate against the whole service:
+ * Postgres in a container and a {@link MockProducer} standing in for the Kafka broker, so the outbox,
+ * dispatcher and event codec run as in production.
+ * <p>
+ * The requests are sent open-loop by {@link LoadDriver}, so a stalled service shows up in the percentiles
+ * instead of silently lowering the request rate. Settings come from {@link LoadProfile}, results go to
+ * {@link LoadReport}. Run with {@code mvn -Ploadtest verify}.
+ */
+class MixedWorkloadLoadIT extends PostgresIT {
+
+    private static final Duration OUTBOX_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadProfile profile = LoadProfile.fromSystemProperties();
+    private final LoadReport report = new LoadReport();
+    private final MockProducer<String, byte[]> kafka =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+
+    @Test
+    @DisplayName("mixed workload - latency percentiles at the target request rate")
+    void mixedWorkload() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext)
+                        .registerBeanDefinition("loadTestKafkaProducer", kafkaStandIn()))
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "--spring.jpa.show-sql=false",
+                        // the unused real producer keeps looking for a broker
+                        "--logging.level.org.apache.kafka=ERROR")) {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            userRepository.deleteAll();
+            long[] seededIds = userRepository.saveAll(TestUserFactory.createLisOfUsers(profile.users())).stream()
+                    .mapToLong(User::getId)
+                    .toArray();
+            LoadDriver driver = new LoadDriver(profile, report,
+                    context.getEnvironment().getRequiredProperty("local.server.port", Integer.class), seededIds);
+
+            driver.openLoop(profile.warmup());
+            report.reset();
+            kafka.clear();
+            Instant started = Instant.now();
+            double achievedRps = driver.openLoop(profile.duration());
+
+            awaitOutboxDrained(context.getBean(UserEventOutboxRepository.class));
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("targetRps", profile.rps());
+            run.put("achievedRps", Math.round(achievedRps));
+            run.put("durationSeconds", profile.duration().toSeconds());
+            run.put("mix", profile.mix());
+            run.put("users", profile.users());
+            run.put("kafkaEventsPublished", kafka.history().size());
+            report.write(profile.reportDir(), started, run);
+        }
+        Path summary = profile.reportDir().toAbsolutePath().resolve("summary.json");
+
+        assertAll(profile.mix().keySet().stream().map(operation -> () -> {
+            assertEquals(0, report.errors(operation), operation + " errors, report " + summary);
+            profile.maxP99Ms().ifPresent(maxP99 -> assertTrue(report.p99Millis(operation) <= maxP99,
+                    operation + " p99 " + report.p99Millis(operation) + " ms, report " + summary));
+        }));
+    }
+
+    /**
+     * Typed as {@code Producer<String, byte[]>}, a raw {@code MockProducer} would lose against the real producer.
+     */
+    private RootBeanDefinition kafkaStandIn() {
+        RootBeanDefinition definition = new RootBeanDefinition();
+        definition.setTargetType(ResolvableType.forClassWithGenerics(Producer.class, String.class, byte[].class));
+        definition.setInstanceSupplier(() -> kafka);
+        definition.setPrimary(true);
+        return definition;
+    }
+
+    private static void awaitOutboxDrained(UserEventOutboxRepository outboxRepository) throws InterruptedException {
+        long deadline = System.nanoTime() + OUTBOX_DRAIN_TIMEOUT.toNanos();
+        while (outboxRepository.count() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+}
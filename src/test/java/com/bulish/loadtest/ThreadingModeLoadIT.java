@@ -0,0 +1,130 @@
+package com.bulish.loadtest;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.UserServiceApplication;
+import com.bulish.model.User;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same database-bound workload against the service on platform threads and on virtual threads and
+ * compares how many requests each mode answers successfully per second. The mix is made of searches and writes,
+ * none of which is served from a cache, so every request holds its thread while it waits for Postgres.
+ * <p>
+ * The driver is closed-loop with more clients than Tomcat has platform threads: throughput is what is compared,
+ * and the clients keep the service saturated in both modes. Besides the {@link LoadProfile} settings
+ * (duration, warm-up, users) it reads:
+ * <ul>
+ *     <li>{@code loadtest.threading.mix} - operation weights, {@code search=60,update=25,create=10,delete=5}</li>
+ *     <li>{@code loadtest.threading.clients} - concurrent clients, 400</li>
+ *     <li>{@code loadtest.min-virtual-ratio} - fails the run when virtual threads complete fewer requests per
+ *     second than this share of the platform threads' rate, 0.9</li>
+ * </ul>
+ * Virtual threads must answer every request. Platform threads may time out under the same load, their errors
+ * are in their report. Reports go to {@code threading/platform} and {@code threading/virtual} under the report directory, the
+ * comparison to {@code threading/summary.json}. Run with {@code mvn -Ploadtest verify -Dit.test=ThreadingModeLoadIT}.
+ */
+class ThreadingModeLoadIT extends PostgresIT {
+
+    private final LoadProfile profile = LoadProfile.fromSystemProperties()
+            .withMix(LoadProfile.parseMix(System.getProperty("loadtest.threading.mix",
+                    "search=60,update=25,create=10,delete=5")));
+    private final int clients = Integer.getInteger("loadtest.threading.clients", 400);
+    private final double minVirtualRatio =
+            Double.parseDouble(System.getProperty("loadtest.min-virtual-ratio", "0.9"));
+    private final Path reportDir = profile.reportDir().resolve("threading");
+
+    @Test
+    @DisplayName("virtual threads vs platform threads - throughput of a database-bound workload")
+    void compareThroughput() throws Exception {
+        ModeResult platform = measure(false);
+        ModeResult virtual = measure(true);
+        double ratio = virtual.rps() / platform.rps();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("clients", clients);
+        summary.put("mix", profile.mix());
+        summary.put("platformRps", Math.round(platform.rps()));
+        summary.put("platformErrors", platform.errors(profile));
+        summary.put("virtualRps", Math.round(virtual.rps()));
+        summary.put("virtualErrors", virtual.errors(profile));
+        summary.put("virtualToPlatformRatio", Math.round(ratio * 100) / 100.0);
+        Files.createDirectories(reportDir);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportDir.resolve("summary.json").toFile(), summary);
+
+        assertAll(profile.mix().keySet().stream().map(operation -> () ->
+                assertEquals(0, virtual.report().errors(operation), operation + " errors on virtual threads")));
+        assertTrue(ratio >= minVirtualRatio, "virtual/platform throughput ratio " + ratio
+                + ", report " + reportDir.toAbsolutePath().resolve("summary.json"));
+    }
+
+    private ModeResult measure(boolean virtualThreads) throws IOException {
+        LoadReport report = new LoadReport();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                "--spring.jpa.show-sql=false",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                // compares the threading modes themselves, load shedding and deadlines would turn the
+                // difference into 503s and 504s
+                "--concurrency.limit.enabled=false",
+                "--request.deadline.read-timeout=0s",
+                "--request.deadline.write-timeout=0s",
+                "--outbox.relay.enabled=false",
+                "--outbox.dispatch.enabled=false",
+                // no broker, the producer keeps looking for one
+                "--logging.level.org.apache.kafka=ERROR")) {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            userRepository.deleteAllInBatch();
+            context.getBean(UserEventOutboxRepository.class).deleteAllInBatch();
+            long[] seededIds = userRepository.saveAll(TestUserFactory.createLisOfUsers(profile.users())).stream()
+                    .mapToLong(User::getId)
+                    .toArray();
+            LoadDriver driver = new LoadDriver(profile, report,
+                    context.getEnvironment().getRequiredProperty("local.server.port", Integer.class), seededIds);
+
+            driver.closedLoop(clients, profile.warmup());
+            report.reset();
+            Instant started = Instant.now();
+            double rps = driver.closedLoop(clients, profile.duration());
+
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("threads", virtualThreads ? "virtual" : "platform");
+            run.put("clients", clients);
+            run.put("achievedRps", Math.round(rps));
+            run.put("durationSeconds", profile.duration().toSeconds());
+            run.put("mix", profile.mix());
+            run.put("users", profile.users());
+            report.write(reportDir.resolve(virtualThreads ? "virtual" : "platform"), started, run);
+            return new ModeResult(rps, report);
+        }
+    }
+
+    private record ModeResult(double rps, LoadReport report) {
+
+        long errors(LoadProfile profile) {
+            return profile.mix().keySet().stream().mapToLong(report::errors).sum();
+        }
+    }
+}
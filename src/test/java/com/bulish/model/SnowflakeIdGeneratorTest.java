@@ -0,0 +1,137 @@
+package com.bulish.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH_MILLIS + 1_000_000L;
+
+    @Test
+    @DisplayName("snowflake - id carries the timestamp and the node id")
+    void encodesTimestampAndNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(513, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(NOW, SnowflakeIdGenerator.timestampMillis(first));
+        assertEquals(513, SnowflakeIdGenerator.nodeId(first));
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    @DisplayName("snowflake - ids keep growing when the clock steps back or a millisecond runs out of sequence")
+    void monotonicAcrossClockAndSequence() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 3 * (1 << SnowflakeIdGenerator.SEQUENCE_BITS); i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(1, SnowflakeIdGenerator.nodeId(id));
+            previous = id;
+        }
+        assertEquals(NOW + 3, SnowflakeIdGenerator.timestampMillis(previous));
+
+        clock.set(NOW - 500);
+        assertTrue(generator.nextId() > previous);
+
+        clock.set(NOW + 10_000);
+        assertEquals(NOW + 10_000, SnowflakeIdGenerator.timestampMillis(generator.nextId()));
+    }
+
+    @Test
+    @DisplayName("snowflake - waits for the clock instead of running further ahead than the drift bound")
+    void waitsPastMaxDrift() {
+        AtomicLong clock = new AtomicLong(NOW);
+        AtomicBoolean ticking = new AtomicBoolean();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0, 5,
+                () -> ticking.get() ? clock.getAndIncrement() : clock.get());
+        long previous = generator.nextId();
+
+        // steps back 50 ms, then moves one millisecond per read
+        clock.set(NOW - 50);
+        ticking.set(true);
+        long id = generator.nextId();
+
+        assertTrue(id > previous);
+        assertTrue(clock.get() >= NOW - 5);
+    }
+
+    @Test
+    @DisplayName("snowflake - restart with the clock behind the last issued id is refused, within the bound ids go on")
+    void restartAfterClockRegression() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator beforeRestart = new SnowflakeIdGenerator(3, clock::get);
+        long lastIssued = 0;
+        for (int i = 0; i < 3 * (1 << SnowflakeIdGenerator.SEQUENCE_BITS); i++) {
+            lastIssued = beforeRestart.nextId();
+        }
+        long lastIssuedBeforeRestart = lastIssued;
+
+        clock.set(NOW - 10_000);
+        assertThrows(IllegalStateException.class, () -> new SnowflakeIdGenerator(3, lastIssuedBeforeRestart,
+                SnowflakeIdGenerator.MAX_DRIFT_MILLIS, clock::get));
+
+        clock.set(NOW);
+        SnowflakeIdGenerator afterRestart = new SnowflakeIdGenerator(3, lastIssuedBeforeRestart,
+                SnowflakeIdGenerator.MAX_DRIFT_MILLIS, clock::get);
+        long first = afterRestart.nextId();
+        assertTrue(first > lastIssuedBeforeRestart);
+        assertEquals(NOW + 3, SnowflakeIdGenerator.timestampMillis(first));
+    }
+
+    @Test
+    @DisplayName("snowflake - ids are unique and ordered per thread under contention")
+    void uniqueAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        int threads = 8;
+        int perThread = 50_000;
+
+        List<Callable<long[]>> tasks = IntStream.range(0, threads)
+                .<Callable<long[]>>mapToObj(i -> () -> {
+                    long[] ids = new long[perThread];
+                    for (int j = 0; j < perThread; j++) {
+                        ids[j] = generator.nextId();
+                    }
+                    return ids;
+                })
+                .toList();
+
+        Set<Long> unique = new HashSet<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Future<long[]> result : executor.invokeAll(tasks)) {
+                long[] ids = result.get();
+                for (int j = 0; j < ids.length; j++) {
+                    assertTrue(j == 0 || ids[j] > ids[j - 1]);
+                    unique.add(ids[j]);
+                }
+            }
+        }
+
+        assertEquals(threads * perThread, unique.size());
+    }
+
+    @Test
+    @DisplayName("snowflake - node id outside of the node bits is rejected")
+    void rejectsNodeOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,83 @@
+package com.bulish.model;
+
+import com.bulish.PostgresIT;
+import com.bulish.TestUserFactory;
+import com.bulish.dto.UserDto;
+import com.bulish.repository.UserEventOutboxRepository;
+import com.bulish.repository.UserRepository;
+import com.bulish.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserIdGeneratorIT extends PostgresIT {
+
+    private static final int NODE_ID = 42;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+        registry.add("spring.jpa.properties." + UserIdGenerator.STRATEGY, () -> UserIdGenerator.SNOWFLAKE);
+        registry.add("spring.jpa.properties." + UserIdGenerator.NODE_ID, () -> NODE_ID);
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("snowflake ids - single and batch inserts get time-ordered ids without touching the sequence")
+    void snowflakeIds() {
+        Long sequenceBefore = lastSequenceValue();
+        long start = System.currentTimeMillis();
+        // issued by this node before a restart, ahead of the clock
+        long issuedBefore = new SnowflakeIdGenerator(NODE_ID, () -> start + 500).nextId();
+        jdbcTemplate.update("INSERT INTO users (id, name, email, age, created_at, version) " +
+                "VALUES (?, 'before', 'before@mail.com', 30, now(), 0)", issuedBefore);
+
+        UserDto single = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("single@mail.com"));
+        List<UserDto> batch = userService.saveNewUsers(List.of(
+                TestUserFactory.createUserDtoWithEmail("batch1@mail.com"),
+                TestUserFactory.createUserDtoWithEmail("batch2@mail.com"),
+                TestUserFactory.createUserDtoWithEmail("batch3@mail.com")));
+
+        List<Long> ids = List.of(single.getId(), batch.get(0).getId(), batch.get(1).getId(), batch.get(2).getId());
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(ids.getFirst() > issuedBefore);
+        ids.forEach(id -> {
+            assertEquals(NODE_ID, SnowflakeIdGenerator.nodeId(id));
+            assertTrue(SnowflakeIdGenerator.timestampMillis(id) >= start);
+            assertTrue(userRepository.findById(id).isPresent());
+        });
+        assertEquals(sequenceBefore, lastSequenceValue());
+    }
+
+    private Long lastSequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM users_id_seq", Long.class);
+    }
+}
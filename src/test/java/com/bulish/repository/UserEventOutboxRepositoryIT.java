@@ -0,0 +1,128 @@
+package com.bulish.repository;
+
+import com.bulish.PostgresIT;
+import com.bulish.dto.UserOperation;
+import com.bulish.model.UserEventOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Locks outbox rows from two transactions at once, as two relay instances or the relay and the dispatcher do.
+ */
+@SpringBootTest
+public class UserEventOutboxRepositoryIT extends PostgresIT {
+
+    private static final int LIMIT = 10;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+    }
+
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long firstOfKey;
+    private Long secondOfKey;
+    private Long otherKey;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        List<UserEventOutbox> events = outboxRepository.saveAll(List.of(
+                outboxEvent("1", UserOperation.CREATE),
+                outboxEvent("1", UserOperation.DELETE),
+                outboxEvent("2", UserOperation.CREATE)));
+        firstOfKey = events.get(0).getId();
+        secondOfKey = events.get(1).getId();
+        otherKey = events.get(2).getId();
+    }
+
+    @Test
+    @DisplayName("lockNextBatch - takes every event of a key when the batch holds the oldest one")
+    void lockNextBatchWholeKey() {
+        List<Long> locked = transactionTemplate.execute(status -> ids(lockNextBatch(LIMIT)));
+
+        assertEquals(List.of(firstOfKey, secondOfKey, otherKey), locked);
+    }
+
+    @Test
+    @DisplayName("lockNextBatch - skips events behind an older event of the same key locked by another relay")
+    void lockNextBatchBehindRelay() {
+        List<Long> locked = transactionTemplate.execute(status -> {
+            assertEquals(List.of(firstOfKey), ids(lockNextBatch(1)));
+            return inOtherTransaction(() -> ids(lockNextBatch(LIMIT)));
+        });
+
+        assertEquals(List.of(otherKey), locked);
+    }
+
+    @Test
+    @DisplayName("lockNextBatch - skips events behind an older event of the same key locked by the dispatcher")
+    void lockNextBatchBehindDispatcher() {
+        List<Long> locked = transactionTemplate.execute(status -> {
+            assertEquals(List.of(firstOfKey), ids(outboxRepository.lockDispatchable(List.of(firstOfKey))));
+            return inOtherTransaction(() -> ids(lockNextBatch(LIMIT)));
+        });
+
+        assertEquals(List.of(otherKey), locked);
+    }
+
+    @Test
+    @DisplayName("lockDispatchable - skips events behind an older event of the same key locked by the relay")
+    void lockDispatchableBehindRelay() {
+        List<Long> locked = transactionTemplate.execute(status -> {
+            assertEquals(List.of(firstOfKey), ids(lockNextBatch(1)));
+            return inOtherTransaction(() -> ids(outboxRepository.lockDispatchable(List.of(secondOfKey, otherKey))));
+        });
+
+        assertEquals(List.of(otherKey), locked);
+    }
+
+    private List<UserEventOutbox> lockNextBatch(int limit) {
+        return outboxRepository.lockNextBatch(limit, LocalDateTime.now().plusMinutes(1));
+    }
+
+    private <T> T inOtherTransaction(Supplier<T> locking) {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> locking.get()), executor)
+                    .get(10, TimeUnit.SECONDS);
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static List<Long> ids(List<UserEventOutbox> events) {
+        return events.stream().map(UserEventOutbox::getId).toList();
+    }
+
+    private static UserEventOutbox outboxEvent(String key, UserOperation operation) {
+        return UserEventOutbox.builder()
+                .topic("user-events")
+                .eventKey(key)
+                .operation(operation)
+                .email("user" + key + "@mail.com")
+                .createdAt(LocalDateTime.now().minusSeconds(10))
+                .build();
+    }
+}
@@ -0,0 +1,186 @@
+package com.bulish.repository;
+
+import com.bulish.PostgresIT;
+import com.bulish.dto.UserCursor;
+import com.bulish.dto.UserDto;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserSearchCriteria;
+import com.bulish.service.UserService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL that {@link UserSpecifications} produce, against a table large
+ * enough for the planner to prefer the search indexes over a sequential scan.
+ */
+@SpringBootTest
+public class UserSearchIndexIT extends PostgresIT {
+
+    private static final int USERS = 20_000;
+    private static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                SearchStatementCapture.class::getName);
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        // one user per minute, every 1000th user is 99 years old and the rest are 7..96
+        jdbcTemplate.update("INSERT INTO users (id, name, email, age, created_at, version) " +
+                "SELECT nextval('users_id_seq'), 'user' || g, 'search' || g || '@mail.com', " +
+                "CASE WHEN g % 1000 = 0 THEN 99 ELSE 7 + g % 90 END, ? + g * interval '1 minute', 0 " +
+                "FROM generate_series(1, ?) g", FIRST_CREATED_AT, USERS);
+        jdbcTemplate.execute("ANALYZE users");
+        SearchStatementCapture.clear();
+    }
+
+    @Test
+    @DisplayName("search - filters and keyset pages")
+    void searchPages() {
+        UserSearchCriteria criteria = UserSearchCriteria.builder()
+                .minAge(97)
+                .namePrefix("user1")
+                .createdTo(FIRST_CREATED_AT.plusDays(7))
+                .build();
+
+        UserPage page = userService.search(criteria, null, 5);
+
+        assertEquals(List.of("user1000", "user10000"), names(page));
+        assertFalse(page.hasNext());
+
+        UserPage window = userService.search(UserSearchCriteria.builder()
+                .createdFrom(FIRST_CREATED_AT.plusMinutes(10))
+                .createdTo(FIRST_CREATED_AT.plusMinutes(20))
+                .build(), null, 4);
+        UserPage nextWindow = userService.search(UserSearchCriteria.builder()
+                .createdFrom(FIRST_CREATED_AT.plusMinutes(10))
+                .createdTo(FIRST_CREATED_AT.plusMinutes(20))
+                .build(), window.getNextCursor(), 4);
+
+        assertEquals(List.of("user10", "user11", "user12", "user13"), names(window));
+        assertEquals(List.of("user14", "user15", "user16", "user17"), names(nextWindow));
+    }
+
+    @Test
+    @DisplayName("search - name prefix with like wildcards is matched literally")
+    void searchEscapesPrefix() {
+        UserPage page = userService.search(UserSearchCriteria.builder().namePrefix("user_").build(), null, 5);
+
+        assertTrue(page.getUsers().isEmpty());
+    }
+
+    @Test
+    @DisplayName("explain - age range uses idx_users_age")
+    void explainAgeRange() {
+        String plan = explainSearch(UserSearchCriteria.builder().minAge(97).maxAge(100).build(), null,
+                97, 100, 21);
+
+        assertUsesIndex(plan, "idx_users_age");
+    }
+
+    @Test
+    @DisplayName("explain - name prefix uses idx_users_name_prefix")
+    void explainNamePrefix() {
+        String plan = explainSearch(UserSearchCriteria.builder().namePrefix("user1234").build(), null,
+                "user1234%", 21);
+
+        assertUsesIndex(plan, "idx_users_name_prefix");
+    }
+
+    @Test
+    @DisplayName("explain - created window uses idx_users_created_at_id")
+    void explainCreatedWindow() {
+        LocalDateTime from = FIRST_CREATED_AT.plusDays(3);
+        LocalDateTime to = from.plusHours(1);
+        String plan = explainSearch(UserSearchCriteria.builder().createdFrom(from).createdTo(to).build(), null,
+                from, to, 21);
+
+        assertUsesIndex(plan, "idx_users_created_at_id");
+    }
+
+    @Test
+    @DisplayName("explain - keyset page uses idx_users_created_at_id")
+    void explainKeysetPage() {
+        UserCursor cursor = new UserCursor(FIRST_CREATED_AT.plusDays(7), 1L);
+        String plan = explainSearch(new UserSearchCriteria(), cursor,
+                cursor.getCreatedAt(), cursor.getCreatedAt(), cursor.getId(), 21);
+
+        assertUsesIndex(plan, "idx_users_created_at_id");
+    }
+
+    /**
+     * Runs the search to capture the generated SQL and explains it with the same bind values,
+     * listed in the order the predicates appear in the statement.
+     */
+    private String explainSearch(UserSearchCriteria criteria, UserCursor cursor, Object... parameters) {
+        userService.search(criteria, cursor == null ? null : cursor.encode(), 20);
+        String sql = SearchStatementCapture.last();
+
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+    }
+
+    private static void assertUsesIndex(String plan, String index) {
+        assertAll(plan,
+                () -> assertTrue(plan.contains(index)),
+                () -> assertFalse(plan.contains("Seq Scan")));
+    }
+
+    private static List<String> names(UserPage page) {
+        return page.getUsers().stream().map(UserDto::getName).collect(Collectors.toList());
+    }
+
+    public static class SearchStatementCapture implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.startsWith("select") && sql.contains(" from users ")) {
+                synchronized (STATEMENTS) {
+                    STATEMENTS.add(sql);
+                }
+            }
+            return sql;
+        }
+
+        static String last() {
+            synchronized (STATEMENTS) {
+                return STATEMENTS.getLast();
+            }
+        }
+
+        static void clear() {
+            synchronized (STATEMENTS) {
+                STATEMENTS.clear();
+            }
+        }
+    }
+}
@@ -1,41 +1,52 @@
 package com.bulish.service;
 
+import com.bulish.PostgresIT;
 import com.bulish.TestUserFactory;
 import com.bulish.dto.UserDto;
+import com.bulish.dto.UserLookup;
+import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
 import com.bulish.exceptions.EmailAlreadyExistsException;
 import com.bulish.exceptions.UserNotFoundException;
+import com.bulish.model.UserEventOutbox;
+import com.bulish.repository.UserEventOutboxRepository;
 import com.bulish.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
-import org.testcontainers.containers.PostgreSQLContainer;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
-@Testcontainers
-public class UserServiceImplIT {
-
-    @Container
-    static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15-alpine")
-            .withDatabaseName("testdb")
-            .withUsername("test")
-            .withPassword("test");
+public class UserServiceImplIT extends PostgresIT {
 
     @DynamicPropertySource
-    static void postgresqlProperties(DynamicPropertyRegistry registry) {
-        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
-        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
-        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("outbox.relay.enabled", () -> "false");
+        registry.add("outbox.dispatch.enabled", () -> "false");
     }
 
     @Autowired
@@ -44,9 +55,19 @@ public class UserServiceImplIT {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
+        outboxRepository.deleteAll();
     }
 
     @Test
@@ -61,7 +82,8 @@ public class UserServiceImplIT {
                 () -> assertEquals(userDto.getEmail(), createdUser.getEmail()),
                 () -> assertEquals(userDto.getName(), createdUser.getName()),
                 () -> assertEquals(userDto.getAge(), createdUser.getAge()),
-                () -> assertEquals(1, userRepository.count())
+                () -> assertEquals(1, userRepository.count()),
+                () -> assertEquals(1, outboxRepository.count())
                 );
     }
 
@@ -74,6 +96,73 @@ public class UserServiceImplIT {
         assertThrows(EmailAlreadyExistsException.class,
                 () -> userService.saveNewUser(userDto));
 
+        assertEquals(1, userRepository.count());
+        assertEquals(1, outboxRepository.count());
+    }
+
+    @Test
+    @DisplayName("save new user - concurrent creates with the same email")
+    void saveNewUserConcurrentDuplicateEmail() throws Exception {
+        UserDto userDto = TestUserFactory.createUserDtoWithEmail("race@mail.com");
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<UserDto>> results = IntStream.range(0, threads)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return userService.saveNewUser(userDto);
+                    }))
+                    .toList();
+            start.countDown();
+
+            int created = 0;
+            int conflicts = 0;
+            for (Future<UserDto> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                    created++;
+                } catch (ExecutionException exception) {
+                    assertInstanceOf(EmailAlreadyExistsException.class, exception.getCause());
+                    conflicts++;
+                }
+            }
+
+            assertEquals(1, created);
+            assertEquals(threads - 1, conflicts);
+            assertEquals(1, userRepository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("save new users batch - OK")
+    void saveNewUsersOk() {
+        List<UserDto> userDtos = IntStream.range(0, 120)
+                .mapToObj(i -> TestUserFactory.createUserDtoWithEmail("batch" + i + "@mail.com"))
+                .toList();
+
+        List<UserDto> createdUsers = userService.saveNewUsers(userDtos);
+
+        assertAll("created users",
+                () -> assertEquals(120, createdUsers.size()),
+                () -> assertEquals(120, createdUsers.stream().map(UserDto::getId).distinct().count()),
+                () -> assertEquals(120, userRepository.count()),
+                () -> assertEquals(120, outboxRepository.count())
+        );
+    }
+
+    @Test
+    @DisplayName("save new users batch - existing email rolls back whole batch")
+    void saveNewUsersExistingEmail() {
+        userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("taken@mail.com"));
+        List<UserDto> userDtos = List.of(
+                TestUserFactory.createUserDtoWithEmail("free@mail.com"),
+                TestUserFactory.createUserDtoWithEmail("taken@mail.com"));
+
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.saveNewUsers(userDtos));
+
         assertEquals(1, userRepository.count());
     }
 
@@ -100,6 +189,20 @@ public class UserServiceImplIT {
         assertThrows(UserNotFoundException.class, () -> userService.findById(999L));
     }
 
+    @Test
+    @DisplayName("findByIds - users in request order and missing ids")
+    void findByIdsOk() {
+        UserDto first = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("first@email.com"));
+        UserDto second = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("second@email.com"));
+        userService.findById(first.getId());
+
+        UserLookup lookup = userService.findByIds(List.of(second.getId(), 999L, first.getId()));
+
+        assertEquals(List.of(second.getId(), first.getId()), lookup.getUsers().stream().map(UserDto::getId).toList());
+        assertEquals("second@email.com", lookup.getUsers().getFirst().getEmail());
+        assertEquals(List.of(999L), lookup.getMissingIds());
+    }
+
     @Test
     @DisplayName("findAll - OK")
     void findAllOk() {
@@ -120,6 +223,28 @@ public class UserServiceImplIT {
         assertEquals(0, foundUsers.size());
     }
 
+    @Test
+    @DisplayName("findPage - walks all users by cursor")
+    void findPageWalksAllUsers() {
+        userRepository.saveAll(TestUserFactory.createLisOfUsers(5));
+
+        UserPage firstPage = userService.findPage(null, 2);
+        UserPage secondPage = userService.findPage(firstPage.getNextCursor(), 2);
+        UserPage lastPage = userService.findPage(secondPage.getNextCursor(), 2);
+
+        assertAll("pages",
+                () -> assertEquals(2, firstPage.getUsers().size()),
+                () -> assertEquals(2, secondPage.getUsers().size()),
+                () -> assertEquals(1, lastPage.getUsers().size()),
+                () -> assertFalse(lastPage.hasNext()),
+                () -> assertEquals(5, Stream.of(firstPage, secondPage, lastPage)
+                        .flatMap(page -> page.getUsers().stream())
+                        .map(UserDto::getId)
+                        .distinct()
+                        .count())
+        );
+    }
+
     @Test
     @DisplayName("update - OK")
     void updateOk() {
@@ -147,6 +272,119 @@ public class UserServiceImplIT {
         assertThrows(UserNotFoundException.class, () -> userService.update(999L, userDto));
     }
 
+    @Test
+    @DisplayName("update - interleaved updates of the same user, the later commit fails")
+    void updateConcurrentModification() {
+        UserDto savedUser = userService.saveNewUser(TestUserFactory.createUserDto());
+        UserDto first = TestUserFactory.createUserDtoWithParam("First", "first@mail.com", 30);
+        UserDto second = TestUserFactory.createUserDtoWithParam("Second", "second@mail.com", 40);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    // the first update works on the user loaded before the second update commits
+                    userRepository.findById(savedUser.getId());
+                    try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+                        assertDoesNotThrow(() -> executor.submit(() -> userService.update(savedUser.getId(), second))
+                                .get(10, TimeUnit.SECONDS));
+                    }
+                    userService.update(savedUser.getId(), first);
+                }));
+
+        UserDto foundUser = userService.findById(savedUser.getId());
+        assertAll("found user",
+                () -> assertEquals(second.getName(), foundUser.getName()),
+                () -> assertEquals(second.getEmail(), foundUser.getEmail()),
+                () -> assertEquals(1L, foundUser.getVersion())
+        );
+    }
+
+    @Test
+    @DisplayName("patch - changes only specified fields")
+    void patchOk() {
+        UserDto savedUser = userService.saveNewUser(TestUserFactory.createUserDto());
+        userService.findById(savedUser.getId());
+
+        userService.patch(savedUser.getId(), UserPatchDto.builder().age(31).build());
+
+        UserDto foundUser = userService.findById(savedUser.getId());
+        assertAll("patched user",
+                () -> assertEquals(31, foundUser.getAge()),
+                () -> assertEquals(savedUser.getName(), foundUser.getName()),
+                () -> assertEquals(savedUser.getEmail(), foundUser.getEmail())
+        );
+    }
+
+    @Test
+    @DisplayName("patch - user not found")
+    void patchUserNotFound() {
+        UserPatchDto patch = UserPatchDto.builder().name("newName").build();
+
+        assertThrows(UserNotFoundException.class, () -> userService.patch(999L, patch));
+    }
+
+    @Test
+    @DisplayName("patch - email of another user")
+    void patchDuplicateEmail() {
+        UserDto first = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("first@mail.com"));
+        userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("second@mail.com"));
+        UserPatchDto patch = UserPatchDto.builder().email("second@mail.com").build();
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.patch(first.getId(), patch));
+    }
+
+    @Test
+    @DisplayName("version - incremented by update and patch, collection version follows every change")
+    void versionChanges() {
+        long empty = userService.findCollectionVersion();
+        UserDto savedUser = userService.saveNewUser(TestUserFactory.createUserDto());
+        long created = userService.findCollectionVersion();
+
+        userService.update(savedUser.getId(),
+                TestUserFactory.createUserDtoWithParam("Updated Name", "updated@mail.com", 30));
+        UserDto updated = userService.findById(savedUser.getId());
+        userService.patch(savedUser.getId(), UserPatchDto.builder().age(31).build());
+        UserDto patched = userService.findById(savedUser.getId());
+        long afterPatch = userService.findCollectionVersion();
+
+        userService.deleteById(savedUser.getId());
+
+        assertAll("versions",
+                () -> assertEquals(0L, savedUser.getVersion()),
+                () -> assertEquals(1L, updated.getVersion()),
+                () -> assertEquals(2L, patched.getVersion()),
+                () -> assertEquals(empty + 1, created),
+                () -> assertEquals(empty + 3, afterPatch),
+                () -> assertEquals(empty + 4, userService.findCollectionVersion())
+        );
+    }
+
+    @Test
+    @DisplayName("version - delete plus create with the same count changes the collection version")
+    void collectionVersionDeleteAndCreate() {
+        UserDto first = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("first@mail.com"));
+        userService.saveNewUsers(List.of(TestUserFactory.createUserDtoWithEmail("second@mail.com")));
+        long before = userService.findCollectionVersion();
+
+        userService.deleteById(first.getId());
+        userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("third@mail.com"));
+
+        assertEquals(2, userRepository.count());
+        assertEquals(before + 2, userService.findCollectionVersion());
+    }
+
+    @Test
+    @DisplayName("version - failed write does not change the collection version")
+    void collectionVersionRolledBack() {
+        UserDto savedUser = userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("first@mail.com"));
+        userService.saveNewUser(TestUserFactory.createUserDtoWithEmail("second@mail.com"));
+        long before = userService.findCollectionVersion();
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.patch(savedUser.getId(),
+                UserPatchDto.builder().email("second@mail.com").build()));
+
+        assertEquals(before, userService.findCollectionVersion());
+    }
+
     @Test
     @DisplayName("deleteById - OK")
     void deleteById() {
@@ -157,6 +395,13 @@ public class UserServiceImplIT {
 
         assertEquals(0, userRepository.count());
         assertThrows(UserNotFoundException.class, () -> userService.findById(savedUser.getId()));
+        assertEquals(List.of(UserOperation.CREATE, UserOperation.DELETE), outboxRepository.findAll().stream()
+                .sorted(Comparator.comparing(UserEventOutbox::getId))
+                .map(UserEventOutbox::getOperation)
+                .toList());
+        assertEquals(savedUser.getEmail(), outboxRepository.findAll().stream()
+                .filter(event -> event.getOperation() == UserOperation.DELETE)
+                .findFirst().orElseThrow().getEmail());
     }
 
     @Test
@@ -164,4 +409,19 @@ public class UserServiceImplIT {
     void deleteUserNotFound() {
         assertThrows(UserNotFoundException.class, () -> userService.deleteById(999L));
     }
+
+    @Test
+    @DisplayName("metrics - service methods and connection acquisition are timed")
+    void serviceMethodsTimed() {
+        long calls = meterRegistry.timer("user.service", "class", UserServiceImpl.class.getName(),
+                "method", "findAll", "exception", "none").count();
+
+        userService.findAll();
+
+        Timer findAll = meterRegistry.get("user.service").tag("method", "findAll").timer();
+        assertAll("metrics",
+                () -> assertEquals(calls + 1, findAll.count()),
+                () -> assertTrue(meterRegistry.get("hikaricp.connections.acquire").timer().count() > 0)
+        );
+    }
 }
@@ -1,24 +1,46 @@
 package com.bulish.service;
 
 import com.bulish.TestUserFactory;
+import com.bulish.cache.UserCache;
+import com.bulish.cache.UserSecondLevelCache;
+import com.bulish.dto.UserCursor;
 import com.bulish.dto.UserDto;
+import com.bulish.dto.UserLookup;
 import com.bulish.dto.UserOperation;
+import com.bulish.dto.UserPage;
+import com.bulish.dto.UserPatchDto;
+import com.bulish.dto.UserSearchCriteria;
 import com.bulish.exceptions.EmailAlreadyExistsException;
+import com.bulish.exceptions.InvalidCursorException;
 import com.bulish.exceptions.UserNotFoundException;
 import com.bulish.mapper.UserMapper;
 import com.bulish.model.User;
+import com.bulish.repository.DeletedUser;
+import com.bulish.repository.UserIdAllocator;
 import com.bulish.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +59,18 @@ class UserServiceImplTest {
     @Mock
     private UserNotificationServiceImpl userNotificationService;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private UserIdAllocator userIdAllocator;
+
+    @Mock
+    private UserSecondLevelCache secondLevelCache;
+
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ofSeconds(5), new SimpleMeterRegistry());
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -47,9 +81,9 @@ class UserServiceImplTest {
         User user = TestUserFactory.createUser(userId);
         UserDto userDto = TestUserFactory.createUserDto(userId);
 
-        when(userRepository.findByEmail(userDto.getEmail())).thenReturn(Optional.empty());
-        when(userMapper.toEntity(userDto)).thenReturn(user);
-        when(userRepository.save(user)).thenReturn(user);
+        when(userIdAllocator.nextId()).thenReturn(userId);
+        when(userRepository.insertIfEmailAbsent(eq(userId), eq(userDto.getName()), eq(userDto.getEmail()),
+                eq(userDto.getAge()), any())).thenReturn(Optional.of(user));
         when(userMapper.toDto(user)).thenReturn(userDto);
 
         UserDto createdUser = userService.saveNewUser(userDto);
@@ -61,27 +95,78 @@ class UserServiceImplTest {
                 () -> assertEquals(createdUser.getAge(), userDto.getAge())
                 );
 
-        verify(userRepository, times(1)).findByEmail(userDto.getEmail());
-        verify(userMapper, times(1)).toEntity(userDto);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).insertIfEmailAbsent(eq(userId), any(), any(), any(), any());
+        verify(userRepository, times(1)).incrementCollectionVersion(anyInt());
+        verifyNoMoreInteractions(userRepository);
         verify(userMapper, times(1)).toDto(user);
         verify(userNotificationService, times(1)).sendUserEvent(UserOperation.CREATE, userDto);
+        verifyNoInteractions(secondLevelCache);
     }
 
     @Test
     @DisplayName("save new user - email already exists")
     void saveEmailAlreadyExists() {
         UserDto userDto = TestUserFactory.createUserDto();
-        User user = TestUserFactory.createUser();
 
-        when(userRepository.findByEmail(userDto.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.insertIfEmailAbsent(any(), any(), eq(userDto.getEmail()), any(), any()))
+                .thenReturn(Optional.empty());
 
         assertThrows(EmailAlreadyExistsException.class,
                 () -> userService.saveNewUser(userDto));
 
-        verify(userRepository, times(1)).findByEmail(userDto.getEmail());
+        verify(userRepository, times(1)).insertIfEmailAbsent(any(), any(), eq(userDto.getEmail()), any(), any());
         verifyNoMoreInteractions(userRepository);
         verifyNoMoreInteractions(userMapper);
+        verifyNoInteractions(userNotificationService);
+    }
+
+    @Test
+    @DisplayName("save new users batch - OK")
+    void saveNewUsersOk() {
+        List<UserDto> userDtos = List.of(
+                TestUserFactory.createUserDtoWithEmail("first@mail.com"),
+                TestUserFactory.createUserDtoWithEmail("second@mail.com"));
+        userDtos.getFirst().setId(1L);
+        userDtos.getLast().setId(2L);
+        List<User> users = TestUserFactory.createLisOfUsers(2);
+
+        when(userRepository.findExistingEmails(Set.of("first@mail.com", "second@mail.com"))).thenReturn(Set.of());
+        when(userMapper.toEntity(any())).thenReturn(users.getFirst(), users.getLast());
+        when(userRepository.saveAll(users)).thenReturn(users);
+        when(userMapper.toDto(any())).thenReturn(userDtos.getFirst(), userDtos.getLast());
+
+        List<UserDto> createdUsers = userService.saveNewUsers(userDtos);
+
+        assertEquals(userDtos, createdUsers);
+        verify(userRepository, times(1)).findExistingEmails(any());
+        verify(userRepository, times(1)).saveAll(users);
+        verify(userNotificationService, times(1)).sendUserEvents(UserOperation.CREATE, userDtos);
+        verify(userRepository, times(1)).incrementCollectionVersion(anyInt());
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("save new users batch - duplicate email inside batch")
+    void saveNewUsersDuplicateInBatch() {
+        List<UserDto> userDtos = List.of(TestUserFactory.createUserDto(), TestUserFactory.createUserDto());
+
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.saveNewUsers(userDtos));
+
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(userNotificationService);
+    }
+
+    @Test
+    @DisplayName("save new users batch - email already exists")
+    void saveNewUsersEmailAlreadyExists() {
+        UserDto userDto = TestUserFactory.createUserDto();
+        when(userRepository.findExistingEmails(Set.of(userDto.getEmail()))).thenReturn(Set.of(userDto.getEmail()));
+
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.saveNewUsers(List.of(userDto)));
+
+        verify(userRepository, times(1)).findExistingEmails(any());
+        verifyNoMoreInteractions(userRepository);
+        verifyNoInteractions(userNotificationService);
     }
 
     @Test
@@ -124,6 +209,93 @@ class UserServiceImplTest {
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    @DisplayName("findById - repeated reads are served from cache")
+    void findByIdCached() {
+        Long userId = TestUserFactory.USER_ID;
+        User user = TestUserFactory.createUser(userId);
+        UserDto userDto = TestUserFactory.createUserDto(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        userService.findById(userId);
+        UserDto cachedUser = userService.findById(userId);
+
+        assertEquals(userDto, cachedUser);
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    @DisplayName("findById - not found result is cached")
+    void findByIdNotFoundCached() {
+        Long id = 999L;
+        when(userRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.findById(id));
+        assertThrows(UserNotFoundException.class, () -> userService.findById(id));
+
+        verify(userRepository, times(1)).findById(id);
+    }
+
+    @Test
+    @DisplayName("findByIds - request order, missing ids and one load for cache misses")
+    void findByIdsOk() {
+        User first = TestUserFactory.createUser(1L);
+        User second = TestUserFactory.createUser(2L);
+        UserDto firstDto = TestUserFactory.createUserDto(1L);
+        UserDto secondDto = TestUserFactory.createUserDto(2L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(first));
+        when(userRepository.multiGet(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> id == 2L ? second : null).toList();
+        });
+        when(userMapper.toDto(first)).thenReturn(firstDto);
+        when(userMapper.toDto(second)).thenReturn(secondDto);
+        userService.findById(1L);
+
+        UserLookup lookup = userService.findByIds(List.of(2L, 3L, 1L, 2L));
+
+        assertEquals(List.of(secondDto, firstDto), lookup.getUsers());
+        assertEquals(List.of(3L), lookup.getMissingIds());
+        verify(userRepository, times(1)).multiGet(argThat(ids -> Set.copyOf(ids).equals(Set.of(2L, 3L))));
+    }
+
+    @Test
+    @DisplayName("findByIds - loaded users and missing ids are cached")
+    void findByIdsCached() {
+        User user = TestUserFactory.createUser(1L);
+        when(userRepository.multiGet(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> id == 1L ? user : null).toList();
+        });
+        when(userMapper.toDto(user)).thenReturn(TestUserFactory.createUserDto(1L));
+
+        userService.findByIds(List.of(1L, 2L));
+        UserLookup lookup = userService.findByIds(List.of(2L, 1L));
+
+        assertEquals(1, lookup.getUsers().size());
+        assertEquals(List.of(2L), lookup.getMissingIds());
+        assertThrows(UserNotFoundException.class, () -> userService.findById(2L));
+        verify(userRepository, times(1)).multiGet(anyList());
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("findById - update invalidates cached user")
+    void findByIdAfterUpdate() {
+        Long userId = TestUserFactory.USER_ID;
+        User user = TestUserFactory.createUser(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userMapper.toDto(user)).thenReturn(TestUserFactory.createUserDto(userId));
+
+        userService.findById(userId);
+        userService.update(userId, TestUserFactory.createUserDto());
+        userService.findById(userId);
+
+        verify(userCache, times(1)).invalidateAfterCommit(userId);
+        verify(userMapper, times(2)).toDto(user);
+    }
+
     @Test
     @DisplayName("findAll - OK")
     void findAllOk() {
@@ -152,6 +324,101 @@ class UserServiceImplTest {
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    @DisplayName("findPage - first page has next cursor")
+    void findPageFirstPage() {
+        List<User> users = TestUserFactory.createLisOfUsers(3);
+        when(userRepository.findAllByOrderByCreatedAtAscIdAsc(Limit.of(3))).thenReturn(users);
+        when(userMapper.toDto(any())).thenAnswer(invocation -> TestUserFactory.createUserDto(2L));
+
+        UserPage page = userService.findPage(null, 2);
+
+        assertEquals(2, page.getUsers().size());
+        assertTrue(page.hasNext());
+        assertEquals(2L, UserCursor.decode(page.getNextCursor()).getId());
+        verify(userMapper, times(2)).toDto(any());
+    }
+
+    @Test
+    @DisplayName("findPage - last page after cursor")
+    void findPageAfterCursor() {
+        LocalDateTime createdAt = LocalDateTime.now();
+        String cursor = new UserCursor(createdAt, 5L).encode();
+        List<User> users = TestUserFactory.createLisOfUsers(1);
+        when(userRepository.findPageAfter(createdAt, 5L, 3)).thenReturn(users);
+
+        UserPage page = userService.findPage(cursor, 2);
+
+        assertEquals(1, page.getUsers().size());
+        assertFalse(page.hasNext());
+        verify(userRepository, times(1)).findPageAfter(createdAt, 5L, 3);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("findPage - page size is bounded")
+    void findPageSizeBounded() {
+        when(userRepository.findAllByOrderByCreatedAtAscIdAsc(any())).thenReturn(List.of());
+
+        userService.findPage(null, 10_000);
+
+        verify(userRepository, times(1))
+                .findAllByOrderByCreatedAtAscIdAsc(Limit.of(UserServiceImpl.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    @DisplayName("search - fetches one row more than the page in keyset order")
+    @SuppressWarnings("unchecked")
+    void searchFirstPage() {
+        List<User> users = TestUserFactory.createLisOfUsers(3);
+        ArgumentCaptor<Function<JpaSpecificationExecutor.SpecificationFluentQuery<User>, List<User>>> queryCaptor =
+                ArgumentCaptor.forClass(Function.class);
+        when(userRepository.findBy(any(Specification.class), queryCaptor.capture())).thenReturn(users);
+        when(userMapper.toDto(any())).thenAnswer(invocation -> TestUserFactory.createUserDto(2L));
+
+        UserPage page = userService.search(UserSearchCriteria.builder().minAge(18).build(), null, 2);
+
+        assertEquals(2, page.getUsers().size());
+        assertTrue(page.hasNext());
+
+        JpaSpecificationExecutor.SpecificationFluentQuery<User> query = mock(JpaSpecificationExecutor.SpecificationFluentQuery.class, RETURNS_SELF);
+        when(query.all()).thenReturn(users);
+        assertEquals(users, queryCaptor.getValue().apply(query));
+        verify(query).sortBy(Sort.by("createdAt", "id"));
+        verify(query).limit(3);
+    }
+
+    @Test
+    @DisplayName("search - invalid cursor")
+    void searchInvalidCursor() {
+        assertThrows(InvalidCursorException.class,
+                () -> userService.search(new UserSearchCriteria(), "not-a-cursor", 2));
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("findPage - invalid cursor")
+    void findPageInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> userService.findPage("not-a-cursor", 2));
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("exportAll - maps and detaches every streamed user")
+    void exportAllOk() {
+        List<User> users = TestUserFactory.createLisOfUsers(3);
+        List<UserDto> exported = new ArrayList<>();
+        when(userRepository.streamAllBy()).thenReturn(users.stream());
+        when(userMapper.toDto(any())).thenAnswer(invocation -> TestUserFactory.createUserDto());
+
+        userService.exportAll(exported::add);
+
+        assertEquals(3, exported.size());
+        users.forEach(user -> verify(entityManager, times(1)).detach(user));
+    }
+
     @Test
     @DisplayName("update - OK")
     void updateOk() {
@@ -165,6 +432,7 @@ class UserServiceImplTest {
         userService.update(userId, userDto);
 
         verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(1)).incrementCollectionVersion(anyInt());
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -181,20 +449,64 @@ class UserServiceImplTest {
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    @DisplayName("patch - single update statement")
+    void patchOk() {
+        Long userId = TestUserFactory.USER_ID;
+        when(userRepository.patch(userId, null, null, 31)).thenReturn(Optional.of(userId));
+
+        userService.patch(userId, UserPatchDto.builder().age(31).build());
+
+        verify(userRepository, times(1)).patch(userId, null, null, 31);
+        verify(userCache, times(1)).invalidateAfterCommit(userId);
+        verify(secondLevelCache, times(1)).evictAfterCommit(userId);
+        verify(userRepository, times(1)).incrementCollectionVersion(anyInt());
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("patch - user not found")
+    void patchUserNotFound() {
+        Long userId = TestUserFactory.USER_ID;
+        when(userRepository.patch(userId, "newName", null, null)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class,
+                () -> userService.patch(userId, UserPatchDto.builder().name("newName").build()));
+
+        verify(userCache, never()).invalidateAfterCommit(userId);
+        verifyNoInteractions(secondLevelCache);
+    }
+
     @Test
     @DisplayName("deleteById - OK")
     void deleteById() {
         Long userId = TestUserFactory.USER_ID;
-        User user = TestUserFactory.createUser(userId);
+        DeletedUser deletedUser = mock(DeletedUser.class);
         UserDto userDto = TestUserFactory.createUserDto(userId);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userMapper.toDto(user)).thenReturn(userDto);
+        when(userRepository.deleteReturning(userId)).thenReturn(Optional.of(deletedUser));
+        when(userMapper.toDeletedUserDto(deletedUser)).thenReturn(userDto);
 
         userService.deleteById(userId);
 
-        verify(userRepository, times(1)).deleteById(userId);
+        verify(userRepository, times(1)).deleteReturning(userId);
+        verify(userRepository, times(1)).incrementCollectionVersion(anyInt());
         verifyNoMoreInteractions(userRepository);
         verify(userNotificationService, times(1)).sendUserEvent(UserOperation.DELETE, userDto);
+        verify(userCache, times(1)).invalidateAfterCommit(userId);
+        verify(secondLevelCache, times(1)).evictAfterCommit(userId);
+    }
+
+    @Test
+    @DisplayName("deleteById - user not found")
+    void deleteByIdNotFound() {
+        Long userId = TestUserFactory.USER_ID;
+        when(userRepository.deleteReturning(userId)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.deleteById(userId));
+
+        verifyNoInteractions(userNotificationService);
+        verify(userCache, never()).invalidateAfterCommit(userId);
+        verifyNoInteractions(secondLevelCache);
     }
 }